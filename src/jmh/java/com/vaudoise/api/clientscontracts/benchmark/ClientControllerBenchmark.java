@@ -0,0 +1,97 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.vaudoise.api.clientscontracts.Controllers.ClientController;
+
+/**
+ * Latency distribution (p50 / p99 in the JMH report) of the contract
+ * endpoints, which look the client up before running their own query.
+ * Run with {@code -Pjmh.params=clientCache=true,false} to compare with and
+ * without the client cache. The {@code NotModified} variants replay the ETag
+ * of a previous response, as a polling client does, and get a 304.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientControllerBenchmark {
+
+    private static final int POLLED_CLIENTS = 1000;
+
+    /**
+     * ETags of the first clients, as returned by a first unconditional read.
+     */
+    @State(Scope.Benchmark)
+    public static class Etags {
+
+        String[] activeContracts;
+        String[] activeTotal;
+
+        @Setup(Level.Trial)
+        public void collect(SeededDatabase db) {
+            ClientController controller = db.bean(ClientController.class);
+            int clients = (int) Math.min(POLLED_CLIENTS, (db.contracts + db.contractsPerClient - 1) / db.contractsPerClient);
+            activeContracts = new String[clients];
+            activeTotal = new String[clients];
+            for (int i = 0; i < clients; i++) {
+                ServletWebRequest request = request(null);
+                controller.getActiveContracts(i + 1L, null, null, request);
+                activeContracts[i] = request.getResponse().getHeader(HttpHeaders.ETAG);
+                request = request(null);
+                controller.getActiveContractsTotal(i + 1L, request);
+                activeTotal[i] = request.getResponse().getHeader(HttpHeaders.ETAG);
+            }
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> activeContracts(SeededDatabase db) {
+        return db.bean(ClientController.class).getActiveContracts(db.randomClientId(), null, null, request(null));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> activeContractsTotal(SeededDatabase db) {
+        return db.bean(ClientController.class).getActiveContractsTotal(db.randomClientId(), request(null));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> activeContractsNotModified(SeededDatabase db, Etags etags) {
+        int client = ThreadLocalRandom.current().nextInt(etags.activeContracts.length);
+        return db.bean(ClientController.class).getActiveContracts(client + 1L, null, null,
+                request(etags.activeContracts[client]));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> activeContractsTotalNotModified(SeededDatabase db, Etags etags) {
+        int client = ThreadLocalRandom.current().nextInt(etags.activeTotal.length);
+        return db.bean(ClientController.class).getActiveContractsTotal(client + 1L, request(etags.activeTotal[client]));
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
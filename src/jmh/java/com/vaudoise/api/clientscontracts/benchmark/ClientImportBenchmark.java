@@ -0,0 +1,95 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ClientImportService;
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.ImportReport;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+/**
+ * Rows per second of the bulk import compared with saving the same clients one
+ * by one through the repository, each client carrying two contracts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientImportBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    @State(Scope.Thread)
+    public static class Rows {
+
+        List<ClientDto> dtos;
+
+        @Setup(Level.Trial)
+        public void build() {
+            dtos = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                ClientDto dto = new ClientDto();
+                dto.setClientType("PERSON");
+                dto.setName("Import " + i);
+                dto.setPhone("0600000000");
+                dto.setEmail("import" + i + "@vaudoise.ch");
+                dto.setBirthdate("1980-01-01");
+                List<ContractDto> contracts = new ArrayList<>();
+                for (int c = 0; c < 2; c++) {
+                    ContractDto contract = new ContractDto();
+                    contract.setCost(100.0 + c);
+                    contracts.add(contract);
+                }
+                dto.setContracts(contracts);
+                dtos.add(dto);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportReport bulkImport(SeededDatabase db, Rows rows) {
+        return db.bean(ClientImportService.class).importClients(rows.dtos.iterator());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int saveOneByOne(SeededDatabase db, Rows rows) {
+        ClientRepository repository = db.bean(ClientRepository.class);
+        for (ClientDto dto : rows.dtos) {
+            Person person = new Person();
+            person.setName(dto.getName());
+            person.setPhone(dto.getPhone());
+            person.setEmail(dto.getEmail());
+            List<Contract> contracts = new ArrayList<>();
+            for (ContractDto contractDto : dto.getContracts()) {
+                Contract contract = new Contract();
+                contract.setCostAmount(contractDto.getCost());
+                contract.setClient(person);
+                contracts.add(contract);
+            }
+            person.setContracts(contracts);
+            repository.save(person);
+        }
+        return rows.dtos.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Hibernate;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.mapper.ClientMapper;
+import com.vaudoise.api.clientscontracts.model.Client;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientMappingBenchmark {
+
+    /**
+     * A client loaded from the seeded database with its contracts initialized,
+     * so that only the mapping itself is measured. The reflective ModelMapper is
+     * kept here as the reference the generated mappers are compared against.
+     */
+    @State(Scope.Benchmark)
+    public static class LoadedClient {
+
+        Client client;
+        ModelMapper modelMapper;
+        ClientMapper clientMapper;
+
+        @Setup(Level.Trial)
+        public void load(SeededDatabase db) {
+            modelMapper = new ModelMapper();
+            clientMapper = db.bean(ClientMapper.class);
+            client = db.bean(TransactionTemplate.class).execute(status -> {
+                Client loaded = db.bean(ClientRepository.class).findById(1L).orElseThrow();
+                Hibernate.initialize(loaded.getContracts());
+                return loaded;
+            });
+        }
+    }
+
+    @Benchmark
+    public ClientDto modelMapper(LoadedClient loaded) {
+        return loaded.modelMapper.map(loaded.client, ClientDto.class);
+    }
+
+    @Benchmark
+    public ClientDto clientMapper(LoadedClient loaded) {
+        return loaded.clientMapper.toDto(loaded.client);
+    }
+}
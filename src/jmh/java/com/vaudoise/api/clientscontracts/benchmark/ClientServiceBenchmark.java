@@ -0,0 +1,34 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+    @Benchmark
+    public List<ContractSummaryDto> getActiveContracts(SeededDatabase db) {
+        return db.bean(ClientService.class).getActiveContracts(db.randomClientId());
+    }
+
+    @Benchmark
+    public BigDecimal getActiveContractsTotal(SeededDatabase db) {
+        return db.bean(ClientService.class).getActiveContractsTotal(db.randomClientId());
+    }
+}
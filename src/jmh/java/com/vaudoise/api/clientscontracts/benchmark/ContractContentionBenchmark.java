@@ -0,0 +1,141 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.Service.CostWriteBehind;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Many threads updating the cost of a few hot contracts: throughput of the
+ * optimistic locking under contention. {@code updateCost} replays the
+ * conflicting writes (retries printed at the end of each trial),
+ * {@code updateCostIfMatch} reads the version then updates conditionally, as a
+ * client sending {@code If-Match} would, and {@code updateCostWriteBehind}
+ * queues the update and waits for the commit of its batch
+ * ({@code Prefer: respond-async}, {@code ack=durable}). All count the writes a
+ * client would see rejected: 412, or 409 once the attempts are exhausted.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ContractContentionBenchmark {
+
+    // contrats visés par les 16 threads : 1 (conflit permanent) à 256 (conflits rares)
+    @State(Scope.Benchmark)
+    public static class HotContracts {
+
+        @Param({"1", "16", "256"})
+        public int hotContracts;
+
+        private MeterRegistry meterRegistry;
+        private double retriesAtStart;
+
+        @Setup(Level.Trial)
+        public void start(SeededDatabase db) {
+            meterRegistry = db.bean(MeterRegistry.class);
+            retriesAtStart = retries();
+        }
+
+        @TearDown(Level.Trial)
+        public void report() {
+            System.out.printf("%n%d hot contract(s): %.0f write(s) replayed after a conflict%n",
+                    hotContracts, retries() - retriesAtStart);
+        }
+
+        long randomContractId() {
+            return ThreadLocalRandom.current().nextLong(1, hotContracts + 1L);
+        }
+
+        private double retries() {
+            return meterRegistry.counter("service.optimistic.retries").count();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long applied;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            applied = 0;
+            rejected = 0;
+        }
+    }
+
+    private static double randomCost() {
+        return 100.0 + ThreadLocalRandom.current().nextInt(10_000) / 4.0;
+    }
+
+    @Benchmark
+    public Contract updateCost(SeededDatabase db, HotContracts hot, Outcomes outcomes) {
+        try {
+            Contract contract = db.bean(ContractService.class).updateCost(hot.randomContractId(), randomCost());
+            outcomes.applied++;
+            return contract;
+        } catch (ConcurrencyFailureException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public void updateCostWriteBehind(SeededDatabase db, HotContracts hot, Outcomes outcomes) {
+        long contractId = hot.randomContractId();
+        double cost = randomCost();
+        try {
+            Optional<CompletableFuture<Void>> queued = db.bean(CostWriteBehind.class).submit(contractId, cost);
+            if (queued.isPresent()) {
+                queued.get().join();
+            } else {
+                db.bean(ContractService.class).updateCost(contractId, cost);
+            }
+            outcomes.applied++;
+        } catch (CompletionException | ConcurrencyFailureException e) {
+            outcomes.rejected++;
+        }
+    }
+
+    @Benchmark
+    public Contract updateCostIfMatch(SeededDatabase db, HotContracts hot, Outcomes outcomes) {
+        long contractId = hot.randomContractId();
+        Long version = db.bean(ContractRepository.class).findById(contractId).orElseThrow().getVersion();
+        try {
+            Contract contract = db.bean(ContractService.class).updateCost(contractId, randomCost(), version);
+            outcomes.applied++;
+            return contract;
+        } catch (ConcurrencyFailureException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+}
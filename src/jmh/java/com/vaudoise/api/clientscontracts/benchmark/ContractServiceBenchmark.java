@@ -0,0 +1,67 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContractServiceBenchmark {
+
+    // taille d'une campagne de révision tarifaire ; les scores sont ramenés à un contrat
+    private static final int REPRICED_CONTRACTS = 1_000;
+
+    private static double randomCost() {
+        return 100.0 + ThreadLocalRandom.current().nextInt(10_000) / 4.0;
+    }
+
+    @Benchmark
+    public Contract updateCost(SeededDatabase db) {
+        return db.bean(ContractService.class).updateCost(db.randomContractId(), randomCost());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPRICED_CONTRACTS)
+    public int updateCostOneByOne(SeededDatabase db) {
+        ContractService contractService = db.bean(ContractService.class);
+        for (int i = 0; i < REPRICED_CONTRACTS; i++) {
+            contractService.updateCost(db.randomContractId(), randomCost());
+        }
+        return REPRICED_CONTRACTS;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPRICED_CONTRACTS)
+    public int updateCostsBulk(SeededDatabase db) {
+        List<CostUpdate> updates = new ArrayList<>(REPRICED_CONTRACTS);
+        for (int i = 0; i < REPRICED_CONTRACTS; i++) {
+            updates.add(new CostUpdate(db.randomContractId(), randomCost()));
+        }
+        return db.bean(ContractService.class).updateCosts(updates);
+    }
+
+    // un appel par client (la moitié de ses contrats sont actifs), -1 % / +1 % pour garder des coûts stables
+    @Benchmark
+    public int applyCostRate(SeededDatabase db) {
+        BigDecimal percent = ThreadLocalRandom.current().nextBoolean() ? BigDecimal.ONE : BigDecimal.ONE.negate();
+        return db.bean(ContractService.class).applyCostRate(db.randomClientId(), percent);
+    }
+}
@@ -0,0 +1,262 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vaudoise.api.clientscontracts.VaudoiseRestApiClientsContractsApplication;
+
+/**
+ * Closed-loop HTTP load test of the running application, with request handling
+ * on platform threads (Tomcat pool) or on virtual threads (profile
+ * {@code virtual-threads}, Java 21+).
+ * <p>
+ * For each mode the application is started on a random port against a seeded
+ * in-memory database, then {@code N} simulated users each send one request,
+ * wait for the response and immediately send the next one, for every
+ * concurrency level {@code N}. The mix is 80% first page of active contracts,
+ * 10% active total and 10% cost update. Throughput (goodput: successful
+ * responses only), latency percentiles of the successful responses, requests
+ * shed with {@code 503} and other errors are printed and written as JSON to
+ * the file given as first argument. A user answered {@code 503} waits for its
+ * {@code Retry-After} before the next request, as a well-behaved client would.
+ * <p>
+ * Each mode runs with the adaptive concurrency limit on and off
+ * ({@code api.concurrency-limit.enabled}), to compare the goodput once the
+ * server is saturated.
+ * <p>
+ * Configuration (system properties, see the {@code loadTest} Gradle task):
+ * {@code load.concurrency} (default {@code 50,500,5000}), {@code load.modes}
+ * ({@code platform,virtual}), {@code load.limiter} ({@code on,off}),
+ * {@code load.duration} ({@code PT30S}), {@code load.warmup} ({@code PT10S})
+ * and {@code load.contracts} ({@code 100000}).
+ */
+public final class LoadBenchmark {
+
+    private static final int CONTRACTS_PER_CLIENT = 100;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] concurrencyLevels = Arrays.stream(System.getProperty("load.concurrency", "50,500,5000").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+        String[] modes = System.getProperty("load.modes", "platform,virtual").split(",");
+        String[] limiters = System.getProperty("load.limiter", "on,off").split(",");
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+        int contracts = Integer.parseInt(System.getProperty("load.contracts", "100000"));
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : modes) {
+            mode = mode.trim();
+            if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+                System.err.printf("Skipping mode 'virtual': virtual threads need Java 21, runtime is Java %d%n",
+                        Runtime.version().feature());
+                continue;
+            }
+            for (String limiter : limiters) {
+                boolean limited = "on".equals(limiter.trim());
+                try (ConfigurableApplicationContext context = start(mode, limited)) {
+                    int clients = SeededDatabase.seed(context.getBean(JdbcTemplate.class), contracts,
+                            CONTRACTS_PER_CLIENT);
+                    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                    Target target = new Target("http://localhost:" + port, clients, contracts);
+                    for (int concurrency : concurrencyLevels) {
+                        run(target, concurrency, warmup);
+                        Result result = Result.of(mode, limited, concurrency, run(target, concurrency, duration));
+                        System.out.println(result);
+                        results.add(result);
+                    }
+                }
+            }
+        }
+
+        if (args.length > 0) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(args[0]), results);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String mode, boolean limited) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(VaudoiseRestApiClientsContractsApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false);
+        if ("virtual".equals(mode)) {
+            builder.profiles("virtual-threads");
+        }
+        return builder.run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-" + System.nanoTime(),
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.h2.console.enabled=false",
+                "--api.concurrency-limit.enabled=" + limited,
+                "--logging.level.root=WARN");
+    }
+
+    /**
+     * Runs {@code concurrency} users until the deadline and returns what they
+     * measured. Requests still in flight at the deadline are awaited but the
+     * users stop issuing new ones; the elapsed time includes that drain.
+     */
+    private static Run run(Target target, int concurrency, Duration duration) {
+        // quelques threads suffisent au client : les requêtes sont asynchrones et ne bloquent pas de thread
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .executor(executor)
+                .build();
+        try {
+            long start = System.nanoTime();
+            long deadline = start + duration.toNanos();
+            List<User> users = new ArrayList<>(concurrency);
+            CompletableFuture<?>[] loops = new CompletableFuture<?>[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                User user = new User();
+                users.add(user);
+                loops[i] = user.loop(http, target, deadline);
+            }
+            CompletableFuture.allOf(loops).join();
+            return new Run(users, System.nanoTime() - start);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Run(List<User> users, long elapsedNanos) {
+    }
+
+    private record Target(String baseUrl, int clients, int contracts) {
+
+        HttpRequest nextRequest() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(10);
+            HttpRequest.Builder request;
+            if (pick < 8) {
+                long clientId = random.nextLong(1, clients + 1L);
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/clients/" + clientId
+                        + "/contracts/active?size=50")).GET();
+            }
+            else if (pick == 8) {
+                long clientId = random.nextLong(1, clients + 1L);
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/clients/" + clientId
+                        + "/contracts/active/total")).GET();
+            }
+            else {
+                long contractId = random.nextLong(1, contracts + 1L);
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/contracts/" + contractId
+                        + "/updateCost?updatedCost=" + random.nextInt(100, 5_000)))
+                        .PUT(HttpRequest.BodyPublishers.noBody());
+            }
+            return request.timeout(REQUEST_TIMEOUT).build();
+        }
+    }
+
+    /**
+     * One simulated user. Its latencies are only touched by its own chain of
+     * requests, one at a time, so they need no synchronization.
+     */
+    private static final class User {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private int rejected;
+
+        CompletableFuture<Void> loop(HttpClient http, Target target, long deadline) {
+            if (System.nanoTime() >= deadline) {
+                return CompletableFuture.completedFuture(null);
+            }
+            long start = System.nanoTime();
+            return http.sendAsync(target.nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> {
+                        if (response.statusCode() == 503) {
+                            rejected++;
+                            // sans dépasser la fin de la mesure
+                            return Duration.ofNanos(Math.min(retryAfter(response).toNanos(),
+                                    Math.max(0, deadline - System.nanoTime())));
+                        }
+                        if (response.statusCode() >= 400) {
+                            errors++;
+                        }
+                        else {
+                            record(System.nanoTime() - start);
+                        }
+                        return Duration.ZERO;
+                    })
+                    .exceptionally(failure -> {
+                        errors++;
+                        return Duration.ZERO;
+                    })
+                    .thenCompose(pause -> pause.isZero() ? loop(http, target, deadline)
+                            : CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(pause.toNanos(), TimeUnit.NANOSECONDS))
+                                    .thenCompose(ignored -> loop(http, target, deadline)));
+        }
+
+        // refusée par le limiteur : attente du Retry-After (1 s par défaut)
+        private static Duration retryAfter(HttpResponse<?> response) {
+            return response.headers().firstValue("Retry-After")
+                    .map(seconds -> Duration.ofSeconds(Long.parseLong(seconds.trim())))
+                    .orElse(Duration.ofSeconds(1));
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    public record Result(String mode, boolean limiter, int concurrency, double durationSeconds, long requests,
+            long rejected, long errors, double throughput, double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        static Result of(String mode, boolean limiter, int concurrency, Run run) {
+            long[] all = run.users().stream()
+                    .flatMapToLong(user -> Arrays.stream(user.latencies, 0, user.count)).toArray();
+            long rejected = run.users().stream().mapToLong(user -> user.rejected).sum();
+            long errors = run.users().stream().mapToLong(user -> user.errors).sum();
+            Arrays.sort(all);
+            double seconds = run.elapsedNanos() / 1e9;
+            return new Result(mode, limiter, concurrency, seconds, all.length, rejected, errors, all.length / seconds,
+                    percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                    all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %-11s %5d users: %8.1f req/s, p50 %7.2f ms, p99 %8.2f ms, p99.9 %8.2f ms, "
+                    + "max %8.2f ms, %d rejected (503), %d errors", mode, limiter ? "limiter on" : "limiter off",
+                    concurrency, throughput, p50Ms, p99Ms, p999Ms, maxMs, rejected, errors);
+        }
+    }
+}
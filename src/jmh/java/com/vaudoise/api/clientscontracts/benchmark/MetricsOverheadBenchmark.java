@@ -0,0 +1,49 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+/**
+ * Cost of the Micrometer instrumentation (service timers, repository timers
+ * and row counters) on a cached read, a query and a write. Run with
+ * {@code -Pjmh.params="metrics=true,false"} and compare both rows of each
+ * benchmark; the cached {@code clientExists} is where the relative overhead is
+ * the largest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Benchmark
+    public boolean clientExistsCached(SeededDatabase db) {
+        return db.bean(ClientService.class).clientExists(db.randomClientId());
+    }
+
+    @Benchmark
+    public List<ContractSummaryDto> getActiveContracts(SeededDatabase db) {
+        return db.bean(ClientService.class).getActiveContracts(db.randomClientId());
+    }
+
+    @Benchmark
+    public Contract updateCost(SeededDatabase db) {
+        return db.bean(ContractService.class).updateCost(db.randomContractId(),
+                ThreadLocalRandom.current().nextInt(100, 5_000));
+    }
+}
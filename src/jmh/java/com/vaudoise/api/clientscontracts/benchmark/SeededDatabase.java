@@ -0,0 +1,147 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.vaudoise.api.clientscontracts.VaudoiseRestApiClientsContractsApplication;
+
+/**
+ * Boots the application against a private in-memory H2 database and seeds it
+ * with {@code contracts} rows spread over clients of {@code contractsPerClient}
+ * contracts each. One contract out of two is active (no end date or an end date
+ * in the future), the others are already closed.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int contracts;
+
+    @Param({"100"})
+    public int contractsPerClient;
+
+    // false : cache des clients réduit à zéro entrée, chaque lecture va en base
+    @Param({"true"})
+    public boolean clientCache;
+
+    // false : ni @Timed des services, ni temps et lignes des repositories (mesure du coût de l'instrumentation)
+    @Param({"true"})
+    public boolean metrics;
+
+    // false : pas de journal des mutations (mesure de son coût sur les écritures)
+    @Param({"true"})
+    public boolean journal;
+
+    private ConfigurableApplicationContext context;
+    private int clientCount;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(VaudoiseRestApiClientsContractsApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime(),
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        clientCache ? "--clients.cache.spec=maximumSize=10000,expireAfterWrite=5m"
+                                : "--clients.cache.spec=maximumSize=0",
+                        "--management.observations.annotations.enabled=" + metrics,
+                        "--management.metrics.data.repository.autotime.enabled=" + metrics,
+                        "--management.metrics.repository-rows.enabled=" + metrics,
+                        "--contracts.journal.enabled=" + journal,
+                        "--contracts.journal.directory=" + journalDirectory());
+        clientCount = seed(context.getBean(JdbcTemplate.class), contracts, contractsPerClient);
+    }
+
+    private static String journalDirectory() {
+        try {
+            return Files.createTempDirectory("journal-benchmark").toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomClientId() {
+        return ThreadLocalRandom.current().nextLong(1, clientCount + 1L);
+    }
+
+    public long randomContractId() {
+        return ThreadLocalRandom.current().nextLong(1, contracts + 1L);
+    }
+
+    /**
+     * Inserts the clients and contracts described above and returns the number of
+     * clients created (ids {@code 1..n}, contract ids {@code 1..contracts}).
+     */
+    static int seed(JdbcTemplate jdbc, int contracts, int contractsPerClient) {
+        int clientCount = Math.max(1, (contracts + contractsPerClient - 1) / contractsPerClient);
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= clientCount; id++) {
+            rows.add(new Object[] { id, "Client " + id, "0600000000", "client" + id + "@vaudoise.ch",
+                    Date.valueOf(today.minusYears(20 + id % 50)) });
+            if (rows.size() == BATCH_SIZE || id == clientCount) {
+                jdbc.batchUpdate("insert into client (id, client_type, name, phone, email, birth_date) "
+                        + "values (?, 'PERSON', ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        for (long id = 1; id <= contracts; id++) {
+            long clientId = (id - 1) / contractsPerClient + 1;
+            LocalDate endDate = switch ((int) (id % 4)) {
+                case 0 -> null;
+                case 1 -> today.plusDays(30 + id % 365);
+                default -> today.minusDays(1 + id % 365);
+            };
+            rows.add(new Object[] { id, clientId, Date.valueOf(today.minusYears(1 + id % 5)),
+                    endDate == null ? null : Date.valueOf(endDate), 100.0 + id % 5_000 / 4.0,
+                    Timestamp.valueOf(now.minusDays(id % 60)) });
+            if (rows.size() == BATCH_SIZE || id == contracts) {
+                jdbc.batchUpdate("insert into contract (id, client_id, start_date, end_date, cost_amount, update_date) "
+                        + "values (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        // les ids explicites ne consomment pas les séquences : on les place après les lignes semées (et le pool de 50)
+        jdbc.execute("alter sequence client_seq restart with " + (clientCount + 51L));
+        jdbc.execute("alter sequence contract_seq restart with " + (contracts + 51L));
+        jdbc.execute("analyze");
+        return clientCount;
+    }
+}
@@ -0,0 +1,94 @@
+package com.vaudoise.api.clientscontracts.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+
+/**
+ * Encoding cost and size of a list of active contracts in each format the API
+ * negotiates (JSON, CBOR, Smile), with and without gzip at Tomcat's default
+ * level. No database: the list is built in memory, only the response body is
+ * measured. The encoded sizes are printed in the setup of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationFormatBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int contracts;
+
+    @Param({ "json", "cbor", "smile" })
+    public String format;
+
+    @Param({ "none", "gzip" })
+    public String compression;
+
+    private ObjectMapper mapper;
+    private List<ContractSummaryDto> body;
+    private int expectedSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // même configuration que l'application (dates ISO, pas de timestamps)
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .simpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+        mapper = switch (format) {
+            case "json" -> builder.build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate today = LocalDate.now();
+        body = new ArrayList<>(contracts);
+        for (long id = 1; id <= contracts; id++) {
+            LocalDate start = today.minusDays(random.nextInt(1, 3_650));
+            body.add(new ContractSummaryDto(id, 1L + id / 100, start,
+                    random.nextBoolean() ? null : today.plusDays(random.nextInt(1, 3_650)),
+                    (double) random.nextInt(100, 5_000), start.atStartOfDay()
+                            .plusSeconds(random.nextInt(86_400)).plusNanos(random.nextInt(1_000) * 1_000_000L),
+                    (long) random.nextInt(10)));
+        }
+        expectedSize = encode().length;
+        System.out.printf("%n%s/%s, %d contracts: %d bytes%n", format, compression, contracts, expectedSize);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(expectedSize, 256));
+        try (OutputStream out = "gzip".equals(compression) ? new GZIPOutputStream(bytes, 8 * 1024) : bytes) {
+            mapper.writeValue(out, body);
+        }
+        return bytes.toByteArray();
+    }
+}
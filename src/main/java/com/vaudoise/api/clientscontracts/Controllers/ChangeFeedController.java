@@ -0,0 +1,85 @@
+package com.vaudoise.api.clientscontracts.Controllers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.CursorExpiredException;
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    private final ChangeFeedService changeFeedService;
+    private final Executor executor;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final Duration maxWait;
+
+    public ChangeFeedController(ChangeFeedService changeFeedService,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+            @Value("${api.pagination.default-size:50}") int defaultPageSize,
+            @Value("${api.pagination.max-size:500}") int maxPageSize,
+            @Value("${changes.feed.max-wait:PT30S}") Duration maxWait) {
+        this.changeFeedService = changeFeedService;
+        this.executor = executor;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxWait = maxWait;
+    }
+
+ // =========================================================
+    // ✅ GET : Modifications commitées après le curseur (numéros croissants, sans trou)
+    // =========================================================
+    // X-Next-Cursor porte toujours le curseur de la requête suivante ; avec wait=<secondes>, une requête sans
+    // nouveauté reste en attente (sans bloquer de thread) jusqu'au prochain commit ou la fin de l'attente.
+    // 410 Gone : les entrées qui suivent le curseur ont été purgées, le consommateur doit tout relire.
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> getChanges(
+            @RequestParam(value = "cursor", defaultValue = "0") long cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "wait", defaultValue = "0") long waitSeconds) {
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        if (pageSize <= 0 || cursor < 0 || waitSeconds < 0) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("message", "Invalid parameters")));
+        }
+        Duration wait = Duration.ofSeconds(waitSeconds);
+        if (wait.compareTo(maxWait) > 0) {
+            wait = maxWait;
+        }
+
+        ResponseEntity<?> changes = changes(cursor, pageSize);
+        if (wait.isZero() || !(changes.getBody() instanceof List<?> list) || !list.isEmpty()) {
+            return CompletableFuture.completedFuture(changes);
+        }
+        return changeFeedService.awaitChangesAfter(cursor, wait)
+                .thenApplyAsync(ignored -> changes(cursor, pageSize), executor);
+    }
+
+    private ResponseEntity<?> changes(long cursor, int pageSize) {
+        try {
+            List<ChangeDto> changes = changeFeedService.getChanges(cursor, pageSize);
+            long next = changes.isEmpty() ? cursor : changes.get(changes.size() - 1).getSequence();
+            return ResponseEntity.ok()
+                    .header(ClientController.NEXT_CURSOR_HEADER, String.valueOf(next))
+                    .body(changes);
+        } catch (CursorExpiredException e) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
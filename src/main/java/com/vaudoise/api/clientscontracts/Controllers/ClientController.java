@@ -1,16 +1,28 @@
 package com.vaudoise.api.clientscontracts.Controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,17 +30,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vaudoise.api.clientscontracts.Repository.ContractsVersion;
+import com.vaudoise.api.clientscontracts.Service.ClientImportService;
 import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.ContractEventService;
+import com.vaudoise.api.clientscontracts.config.SqlStatementBudget;
 import com.vaudoise.api.clientscontracts.dto.ClientDto;
 import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.dto.ImportReport;
+import com.vaudoise.api.clientscontracts.mapper.ClientMapper;
 import com.vaudoise.api.clientscontracts.model.Client;
-import com.vaudoise.api.clientscontracts.model.Company;
-import com.vaudoise.api.clientscontracts.model.Contract;
-import com.vaudoise.api.clientscontracts.model.Person;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -37,12 +58,51 @@ import jakarta.persistence.EntityNotFoundException;
 @RequestMapping("/api/clients")
 public class ClientController {
 	
+	// en-tête portant le curseur de la page suivante (id du dernier élément renvoyé)
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	
 	private final ClientService clientService;
-    private final ModelMapper modelMapper;
+	private final ClientImportService clientImportService;
+	private final ContractEventService contractEventService;
+    private final ClientMapper clientMapper;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
-    public ClientController(ClientService clientService, ModelMapper modelMapper) {
+    public ClientController(ClientService clientService, ClientImportService clientImportService,
+            ContractEventService contractEventService, ClientMapper clientMapper, ObjectMapper objectMapper,
+            @Value("${api.pagination.default-size:50}") int defaultPageSize,
+            @Value("${api.pagination.max-size:500}") int maxPageSize) {
         this.clientService = clientService;
-        this.modelMapper = modelMapper;
+        this.clientImportService = clientImportService;
+        this.contractEventService = contractEventService;
+        this.clientMapper = clientMapper;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+    
+ // =========================================================
+    // ✅ GET : Lister les clients, page par page (pagination par curseur)
+    // =========================================================
+    @SqlStatementBudget(2)
+    @GetMapping
+    public ResponseEntity<?> getClients(
+            @RequestParam(value = "clientType", required = false) String clientType,
+            @RequestParam(value = "cursor", defaultValue = "0") long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        int pageSize = pageSize(size);
+        if (pageSize <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid page size"));
+        }
+        try {
+            List<ClientDto> clients = clientService.getClients(clientType, cursor, pageSize).stream()
+                    .map(clientMapper::toDto)
+                    .toList();
+            return page(clients, pageSize, ClientDto::getId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
     
     @PostMapping
@@ -50,15 +110,15 @@ public class ClientController {
     	Client client;
 
         if ("PERSON".equalsIgnoreCase(clientDto.getClientType())) {
-            client = modelMapper.map(clientDto, Person.class);
+            client = clientMapper.toPerson(clientDto);
         } else if ("COMPANY".equalsIgnoreCase(clientDto.getClientType())) {
-            client = modelMapper.map(clientDto, Company.class);
+            client = clientMapper.toCompany(clientDto);
         } else {
             return ResponseEntity.badRequest().build();
         }
         
         Client savedClient = clientService.createClient(client);
-        ClientDto responseDto = modelMapper.map(savedClient, ClientDto.class);
+        ClientDto responseDto = clientMapper.toDto(savedClient);
         
      // ✅ retourne 201 Created + en-tête Location
         return ResponseEntity
@@ -68,37 +128,60 @@ public class ClientController {
     	
     }
     
+    // =========================================================
+    // ✅ POST : Import en masse de clients (tableau JSON ou NDJSON, contrats inclus)
+    // =========================================================
+    // le corps est lu au fil de l'eau (pas de liste complète en mémoire) ; le rapport donne les erreurs ligne par ligne
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" })
+    public ResponseEntity<ImportReport> importClients(InputStream body) throws IOException {
+        try (MappingIterator<ClientDto> rows = objectMapper.readerFor(ClientDto.class).readValues(body)) {
+            return ResponseEntity.ok(clientImportService.importClients(rows));
+        }
+    }
+    
+    @SqlStatementBudget(1)
     @GetMapping(value = "/{id}")
     public ResponseEntity<ClientDto> getClient(@PathVariable("id") String idClient) {
-    	Optional<Client> clientOpt = clientService.getClient(Integer.parseInt(idClient));
+    	Optional<Client> clientOpt = clientService.getClientWithContracts(Integer.parseInt(idClient));
 
         if (clientOpt.isEmpty()) {
             return ResponseEntity.notFound().build(); // ✅ 404 Not Found
         }
 
-        ClientDto responseDto = modelMapper.map(clientOpt.get(), ClientDto.class);
-        return ResponseEntity.ok(responseDto); // ✅ 200 OK si trouvé
+        ClientDto responseDto = clientMapper.toDto(clientOpt.get());
+        // ETag = version du client, à renvoyer en If-Match pour une mise à jour conditionnelle
+        return ResponseEntity.ok().eTag(VersionTags.etag(responseDto.getVersion())).body(responseDto); // ✅ 200 OK si trouvé
     }
     
  // =========================================================
     // ✅ PUT : Mettre à jour un client
     // =========================================================
+    // If-Match: W/"<version>" → 412 Precondition Failed si le client a été modifié depuis cette version
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateClient(@PathVariable("id") long idClient, @RequestBody ClientDto clientDto) {
+    public ResponseEntity<?> updateClient(@PathVariable("id") long idClient, @RequestBody ClientDto clientDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     	Client client;
 
         if ("PERSON".equalsIgnoreCase(clientDto.getClientType())) {
-            client = modelMapper.map(clientDto, Person.class);
+            client = clientMapper.toPerson(clientDto);
         } else if ("COMPANY".equalsIgnoreCase(clientDto.getClientType())) {
-            client = modelMapper.map(clientDto, Company.class);
+            client = clientMapper.toCompany(clientDto);
         } else {
             return ResponseEntity.badRequest().build();
         }
 
+        Long expectedVersion = VersionTags.expectedVersion(ifMatch);
         try {
-            Client updatedClient = clientService.updateClient(idClient, client);
-            ClientDto responseDto = modelMapper.map(updatedClient, ClientDto.class);
-            return ResponseEntity.ok(responseDto);
+            Client updatedClient = expectedVersion == null
+                    ? clientService.updateClient(idClient, client)
+                    : clientService.updateClient(idClient, client, expectedVersion);
+            ClientDto responseDto = clientMapper.toDto(updatedClient);
+            return ResponseEntity.ok().eTag(VersionTags.etag(responseDto.getVersion())).body(responseDto);
+        } catch (ConcurrencyFailureException e) {
+            // 412 : version différente de l'If-Match ; 409 : conflit persistant après les essais, ou verrou non obtenu
+            boolean preconditionFailed = expectedVersion != null && e instanceof OptimisticLockingFailureException;
+            return ResponseEntity.status(preconditionFailed ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body("Client was modified concurrently");
         } catch (RuntimeException e) {
             if (e.getMessage().contains("not found") || e.getMessage().contains("Not found")) {
                 return ResponseEntity.status(404).body(e.getMessage());
@@ -112,10 +195,10 @@ public class ClientController {
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteClient(@PathVariable("id") long id) {
     	try {
-            List<Contract> updatedContracts = clientService.deleteClient(id);
+            int updatedContracts = clientService.deleteClient(id);
             return ResponseEntity.ok(Map.of(
                     "message", "Client deleted successfully",
-                    "contractsUpdated", updatedContracts.size()
+                    "contractsUpdated", updatedContracts
             ));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -130,14 +213,33 @@ public class ClientController {
  // =========================================================
     // ✅ GET : Récupérer les contrats actifs d’un client
     // =========================================================
+    // avec cursor et/ou size : une page de contrats (X-Next-Cursor indique la suite), sinon la liste complète
+    // requête conditionnelle (If-None-Match / If-Modified-Since) : 304 sans lire ni sérialiser les contrats
+    @SqlStatementBudget(3)
     @GetMapping("/{id}/contracts/active")
-    public ResponseEntity<?> getActiveContracts(@PathVariable("id") long idClient) {
+    public ResponseEntity<?> getActiveContracts(@PathVariable("id") long idClient,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            ServletWebRequest request) {
     	try {
-            if (clientService.getClient(idClient).isEmpty()) {
+            if (!clientService.clientExists(idClient)) {
                 return ResponseEntity.status(404).body("Client not found");
             }
+            if (notModified(idClient, request)) {
+                return null;
+            }
 
-            List<Contract> activeContracts = clientService.getActiveContracts(idClient);
+            if (cursor != null || size != null) {
+                int pageSize = pageSize(size);
+                if (pageSize <= 0) {
+                    return ResponseEntity.badRequest().body("Invalid page size");
+                }
+                List<ContractSummaryDto> contracts = clientService.getActiveContracts(idClient,
+                        cursor == null ? 0 : cursor, pageSize);
+                return page(contracts, pageSize, ContractSummaryDto::getId);
+            }
+
+            List<ContractSummaryDto> activeContracts = clientService.getActiveContracts(idClient);
 
             if (activeContracts.isEmpty()) {
                 return ResponseEntity.ok(Collections.emptyList());
@@ -150,13 +252,25 @@ public class ClientController {
         }
     }
     
+    @SqlStatementBudget(2)
     @GetMapping("/{id}/contracts/filteredactive")
     public ResponseEntity<?> getActiveContractsFilteredByUpdatedDate(
             @PathVariable long id,
-            @RequestParam("updatedDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate updatedDate) {
+            @RequestParam("updatedDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate updatedDate,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
 
         try {
-            List<Contract> contracts = clientService.getActiveContractsFilteredByUpdatedDate(id, updatedDate);
+            if (cursor != null || size != null) {
+                int pageSize = pageSize(size);
+                if (pageSize <= 0) {
+                    return ResponseEntity.badRequest().body(Map.of("message", "Invalid page size"));
+                }
+                List<ContractSummaryDto> contracts = clientService.getActiveContractsFilteredByUpdatedDate(id, updatedDate,
+                        cursor == null ? 0 : cursor, pageSize);
+                return page(contracts, pageSize, ContractSummaryDto::getId);
+            }
+            List<ContractSummaryDto> contracts = clientService.getActiveContractsFilteredByUpdatedDate(id, updatedDate);
             return ResponseEntity.ok(contracts);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -170,21 +284,24 @@ public class ClientController {
         }
     }
     
+    // total absent ou expiré : recalculé depuis les contrats ; mêmes validateurs que la liste des contrats actifs
+    @SqlStatementBudget(7)
     @GetMapping("/{id}/contracts/active/total")
     public ResponseEntity<?> getActiveContractsTotal(
-            @PathVariable long id) {
+            @PathVariable long id, ServletWebRequest request) {
 
         try {
-            var optClient = clientService.getClient(id);
-            
-            if (optClient.isEmpty()) {
+            if (!clientService.clientExists(id)) {
             	return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("message", "Client not found"));
             }
-            double TotalCost = clientService.getActiveContractsTotal(id);
+            if (notModified(id, request)) {
+                return null;
+            }
+            BigDecimal totalCost = clientService.getActiveContractsTotal(id);
             
             return ResponseEntity.ok(Map.of("clientId", id,
-                    "totalActiveContractsCost", TotalCost));
+                    "totalActiveContractsCost", totalCost));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -198,6 +315,56 @@ public class ClientController {
         }
     }
 
+    // =========================================================
+    // ✅ GET : Événements (SSE) des contrats du client : création, mise à jour du coût, clôture
+    // =========================================================
+    // l'id de chaque événement est son numéro dans le flux des modifications (reprise via /api/changes?cursor=<id>)
+    // 503 + Retry-After quand le nombre maximal d'abonnements est atteint
+    @GetMapping(value = "/{id}/contracts/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamContractEvents(@PathVariable("id") long idClient) {
+        if (!clientService.clientExists(idClient)) {
+            return ResponseEntity.notFound().build();
+        }
+        return contractEventService.subscribe(idClient)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "30").<SseEmitter>build());
+    }
 
+    // ETag et Last-Modified tirés de la version des contrats du client (dernière updateDate et nombre)
+    // et du jour courant : un contrat qui arrive à échéance sort des contrats actifs sans être modifié.
+    // L'ETag est faible et dépend de l'en-tête Accept : le même contenu existe en JSON, CBOR ou Smile,
+    // compressé ou non (Tomcat ne compresse pas une réponse portant un ETag fort).
+    // Les clients revalident à chaque lecture (no-cache) ; si rien n'a changé, la réponse est un 304 vide.
+    private boolean notModified(long idClient, ServletWebRequest request) {
+        ContractsVersion version = clientService.getContractsVersion(idClient);
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        LocalDateTime lastUpdate = version.getLastUpdate();
+        LocalDateTime lastModified = lastUpdate == null || lastUpdate.isBefore(startOfDay) ? startOfDay : lastUpdate;
+        String updated = lastUpdate == null ? "0"
+                : Long.toHexString(lastUpdate.toEpochSecond(ZoneOffset.UTC)) + "." + Integer.toHexString(lastUpdate.getNano());
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String etag = "W/\"" + updated + "-" + Long.toHexString(version.getCount())
+                + "-" + Long.toHexString(startOfDay.toLocalDate().toEpochDay())
+                + "-" + Integer.toHexString(accept == null ? 0 : accept.hashCode()) + "\"";
+
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return request.checkNotModified(etag, lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    // taille de page demandée, bornée par api.pagination.max-size ; une valeur <= 0 est invalide
+    private int pageSize(Integer requested) {
+        return requested == null ? defaultPageSize : Math.min(requested, maxPageSize);
+    }
+
+    // une page pleine peut avoir une suite : on renvoie alors le curseur à réutiliser
+    private <T> ResponseEntity<List<T>> page(List<T> items, int pageSize, Function<T, Long> idOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idOf.apply(items.get(items.size() - 1))));
+        }
+        return response.body(items);
+    }
 
 }
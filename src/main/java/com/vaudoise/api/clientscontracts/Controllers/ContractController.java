@@ -1,41 +1,68 @@
 package com.vaudoise.api.clientscontracts.Controllers;
 
+import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponseException;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.vaudoise.api.clientscontracts.Service.ContractEventService;
 import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.Service.CostWriteBehind;
+import com.vaudoise.api.clientscontracts.config.SqlStatementBudget;
 import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.mapper.ContractMapper;
 import com.vaudoise.api.clientscontracts.model.Contract;
 
+import jakarta.persistence.EntityNotFoundException;
+
 @RestController
 @RequestMapping("/api/contracts")
 public class ContractController {
 	
 	private final ContractService contractService;
-    private final ModelMapper modelMapper;
+	private final ContractEventService contractEventService;
+	private final ContractMapper contractMapper;
+	// absent si contracts.write-behind.enabled=false : Prefer: respond-async est alors ignoré
+	private final CostWriteBehind costWriteBehind;
 
-    public ContractController(ContractService contractService, ModelMapper modelMapper) {
+    public ContractController(ContractService contractService, ContractEventService contractEventService,
+            ContractMapper contractMapper, ObjectProvider<CostWriteBehind> costWriteBehind) {
         this.contractService = contractService;
-        this.modelMapper = modelMapper;
+        this.contractEventService = contractEventService;
+        this.contractMapper = contractMapper;
+        this.costWriteBehind = costWriteBehind.getIfAvailable();
     }
     
+    // premier contrat du client : lecture du client, séquence, mise à jour du total (aucune ligne : ligne expirée)
+    // et insertion, puis au commit séquence et insertion de l'entrée du flux (numérotée hors de la requête)
+    @SqlStatementBudget(7)
     @PostMapping("/client/{id}")
     public ResponseEntity<?> createContract(@PathVariable("id") long idClient, @RequestBody Contract contract) {
     	try {
     		Contract createdContract = this.contractService.createContract(idClient, contract);
-    		return ResponseEntity.status(HttpStatus.CREATED).body(createdContract);
+    		return ResponseEntity.status(HttpStatus.CREATED).body(contractMapper.toSummaryDto(createdContract));
     		
     	}
     	catch (RuntimeException e) {
@@ -48,21 +75,110 @@ public class ContractController {
     	}
     }
     
+    // If-Match: W/"<version>" (ETag de la réponse précédente) → 412 si le contrat a changé entre-temps ;
+    // sans If-Match, une écriture concurrente est rejouée par le service, 409 si le conflit persiste
+    // un coût encore en file pour ce contrat est abandonné (409 pour sa requête) : il ne doit pas écraser celui-ci
+    // au plus : lecture et mise à jour du contrat, du total (aucune ligne : ligne expirée), séquence et entrée du flux
+    @SqlStatementBudget(6)
     @PutMapping("/{id}/updateCost")
     public ResponseEntity<?> updateCost(
             @PathVariable("id") long id,
-            @RequestParam("updatedCost") double updatedCost) {
+            @RequestParam("updatedCost") double updatedCost,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = VersionTags.expectedVersion(ifMatch);
+        if (costWriteBehind != null) {
+            costWriteBehind.supersede(id);
+        }
         try {
-            Contract updatedContract = contractService.updateCost(id, updatedCost);
+            Contract updatedContract = expectedVersion == null
+                    ? contractService.updateCost(id, updatedCost)
+                    : contractService.updateCost(id, updatedCost, expectedVersion);
             if (updatedContract == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("message", "Contract not found"));
             }
-            return ResponseEntity.ok(updatedContract);
+            return ResponseEntity.ok()
+                    .eTag(VersionTags.etag(updatedContract.getVersion()))
+                    .body(contractMapper.toSummaryDto(updatedContract));
+        } catch (ConcurrencyFailureException e) {
+            // 412 : version différente de l'If-Match ; 409 : conflit persistant après les essais, ou verrou non obtenu
+            boolean preconditionFailed = expectedVersion != null && e instanceof OptimisticLockingFailureException;
+            return ResponseEntity.status(preconditionFailed ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Contract was modified concurrently"));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Internal error: " + e.getMessage()));
         }
     }
+    
+    // écriture différée (Prefer: respond-async) : la dernière valeur par contrat est écrite avec les autres
+    // mises à jour en attente, par lots ; 200 après le commit du lot (ack=durable) ou 202 dès la mise en file
+    // (ack=enqueue), avec le coût demandé (CostUpdate : le contrat n'est pas relu, une valeur plus récente de la file
+    // a pu le remplacer). Sans file (désactivée, pleine) ou avec If-Match, la mise à jour est synchrone.
+    @PutMapping(value = "/{id}/updateCost", headers = "Prefer")
+    public CompletableFuture<ResponseEntity<?>> updateCostWriteBehind(
+            @PathVariable("id") long id,
+            @RequestParam("updatedCost") double updatedCost,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader("Prefer") String prefer) {
+        Optional<CompletableFuture<Void>> queued = costWriteBehind == null || ifMatch != null
+                || !prefer.toLowerCase().contains("respond-async")
+                ? Optional.empty() : costWriteBehind.submit(id, updatedCost);
+        if (queued.isEmpty()) {
+            return CompletableFuture.completedFuture(updateCost(id, updatedCost, ifMatch));
+        }
+        HttpStatus status = costWriteBehind.getAckMode() == CostWriteBehind.AckMode.ENQUEUE
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        CostUpdate body = new CostUpdate(id, updatedCost);
+        return queued.get().<ResponseEntity<?>>thenApply(written -> ResponseEntity.status(status).body(body))
+                .exceptionally(failure -> writeBehindFailure(failure.getCause() != null ? failure.getCause() : failure));
+    }
+
+    // mêmes réponses que la mise à jour synchrone
+    private ResponseEntity<?> writeBehindFailure(Throwable failure) {
+        if (failure instanceof ConcurrencyFailureException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Contract was modified concurrently"));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("message", "Internal error: " + failure.getMessage()));
+    }
+    
+    // révision tarifaire en masse : [{"contractId": 1, "cost": 1200.0}, ...] appliqués en une transaction
+    @PutMapping("/costs")
+    public ResponseEntity<?> updateCosts(@RequestBody List<CostUpdate> updates) {
+        try {
+            int updated = contractService.updateCosts(updates);
+            return ResponseEntity.ok(Map.of("contractsUpdated", updated));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Contracts were modified concurrently"));
+        }
+    }
+    
+    // révision tarifaire par règle : ?percent=3 applique +3 % à tous les contrats actifs du client
+    @PutMapping("/client/{id}/costs/active")
+    public ResponseEntity<?> applyCostRate(@PathVariable("id") long idClient,
+            @RequestParam("percent") BigDecimal percent) {
+        try {
+            int updated = contractService.applyCostRate(idClient, percent);
+            return ResponseEntity.ok(Map.of("contractsUpdated", updated));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Client not found"));
+        }
+    }
+    
+    // événements (SSE) des contrats de tous les clients, mêmes événements que /api/clients/{id}/contracts/events
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamContractEvents() {
+        return contractEventService.subscribe(null)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "30").<SseEmitter>build());
+    }
 
 }
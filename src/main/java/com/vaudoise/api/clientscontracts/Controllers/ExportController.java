@@ -0,0 +1,40 @@
+package com.vaudoise.api.clientscontracts.Controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.vaudoise.api.clientscontracts.Service.ExportService;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+	static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+	private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+ // =========================================================
+    // ✅ GET : Export de tous les contrats / clients, une ligne JSON par élément, écrit au fil de la lecture
+    // =========================================================
+    @GetMapping("/contracts")
+    public ResponseEntity<StreamingResponseBody> exportContracts() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(exportService::exportContracts);
+    }
+
+    @GetMapping("/clients")
+    public ResponseEntity<StreamingResponseBody> exportClients() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(exportService::exportClients);
+    }
+}
@@ -0,0 +1,49 @@
+package com.vaudoise.api.clientscontracts.Controllers;
+
+/**
+ * Entity tags of the {@code @Version}ed resources (clients, contracts), for
+ * conditional updates: the response of a read or a write carries
+ * {@code ETag: W/"<version>"}, a write sent with that value in
+ * {@code If-Match} is only applied if nobody changed the entity since.
+ * <p>
+ * The tag names the version of the entity, not the bytes of one
+ * representation (JSON, CBOR or Smile, compressed or not): it is weak, so
+ * Tomcat keeps compressing the response, and {@code If-Match} compares the
+ * version whether the client sends it weak or strong.
+ */
+final class VersionTags {
+
+    // version qui ne correspond à aucune entité : précondition toujours fausse
+    static final long NO_MATCH = -1L;
+
+    private VersionTags() {
+    }
+
+    static String etag(Long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Version expected by an {@code If-Match} header: {@code null} when the
+     * header is absent or {@code *} (unconditional write), {@link #NO_MATCH}
+     * when it names no version of ours.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        // une liste de plusieurs ETags n'a pas de sens pour une mise à jour : seule la première est lue
+        String tag = ifMatch.split(",")[0].trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.vaudoise.api.clientscontracts.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Projection du calcul des contrats actifs d'un client fait par la base
+public interface ActiveContractsStats {
+    BigDecimal getTotal();       // null si aucun contrat actif
+    long getCount();
+    LocalDate getNextExpiry();   // null si aucun contrat actif n'a de date de fin
+}
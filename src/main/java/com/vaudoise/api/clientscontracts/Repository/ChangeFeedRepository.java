@@ -0,0 +1,37 @@
+package com.vaudoise.api.clientscontracts.Repository;
+
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeFeedEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChangeFeedRepository extends JpaRepository<ChangeFeedEntry, Long> {
+
+    // entrées qui suivent le curseur, parcours de la clé primaire à partir de afterSeq
+    @Query("select new com.vaudoise.api.clientscontracts.dto.ChangeDto(e.seq, e.type, e.clientId, e.contractId, "
+            + "e.startDate, e.endDate, e.costAmount, e.changedAt) from ChangeFeedEntry e "
+            + "where e.seq > :afterSeq order by e.seq")
+    List<ChangeDto> findAfter(@Param("afterSeq") long afterSeq, Limit limit);
+
+    // dernier numéro attribué (lecture sans verrou : la ligne n'est verrouillée que par la numérotation)
+    @Query("select s.lastValue from ChangeSequence s")
+    long lastSequence();
+
+    // entrées commitées pas encore numérotées, dans l'ordre d'insertion
+    List<ChangeFeedEntry> findBySeqIsNullOrderByIdAsc(Limit limit);
+
+    boolean existsBySeqIsNull();
+
+    // entrées numérotées seulement : une entrée pas encore numérotée n'a pas été lue
+    @Modifying
+    @Query("delete from ChangeFeedEntry e where e.seq is not null and e.changedAt < :before")
+    int deleteChangedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,47 @@
+package com.vaudoise.api.clientscontracts.Repository;
+
+import com.vaudoise.api.clientscontracts.model.ClientContractTotal;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClientContractTotalRepository extends JpaRepository<ClientContractTotal, Long> {
+
+    // mise à jour atomique en base : pas de lecture préalable, pas de mise à jour perdue ;
+    // la version change pour qu'un recalcul concurrent, lu avant ce commit, soit rejoué
+    @Modifying
+    @Query("update ClientContractTotal t set t.activeCost = t.activeCost + :delta, "
+            + "t.activeCount = t.activeCount + :count, t.version = t.version + 1 where t.clientId = :clientId")
+    int addToTotal(@Param("clientId") Long clientId, @Param("delta") BigDecimal delta, @Param("count") long count);
+
+    @Modifying
+    @Query("update ClientContractTotal t set t.nextExpiry = :endDate, t.version = t.version + 1 "
+            + "where t.clientId = :clientId and (t.nextExpiry is null or t.nextExpiry > :endDate)")
+    int lowerNextExpiry(@Param("clientId") Long clientId, @Param("endDate") LocalDate endDate);
+
+    // pas encore d'agrégat (ou agrégat à recalculer) : ligne expirée insérée, ou écrasée avec une nouvelle version.
+    // MERGE ... KEY (H2) attend une insertion concurrente puis l'écrase au lieu d'échouer sur la clé : un recalcul
+    // lu avant ce commit bute sur la clé ou sur la version et est rejoué sur les données commitées
+    @Modifying
+    @Query(value = "merge into client_contract_total (client_id, active_cost, active_count, next_expiry, version) "
+            + "key (client_id) values (:clientId, 0, 0, :today, "
+            + "coalesce((select t.version from client_contract_total t where t.client_id = :clientId), 0) + 1)",
+            nativeQuery = true)
+    int markExpired(@Param("clientId") Long clientId, @Param("today") LocalDate today);
+
+    // sans lecture préalable : pas de conflit de version avec les UPDATE concurrents
+    @Modifying
+    @Query("delete from ClientContractTotal t where t.clientId = :clientId")
+    int deleteByClientId(@Param("clientId") Long clientId);
+
+    @Query("select t.clientId from ClientContractTotal t where t.clientId > :after order by t.clientId")
+    List<Long> findClientIdsAfter(@Param("after") Long after, Limit limit);
+}
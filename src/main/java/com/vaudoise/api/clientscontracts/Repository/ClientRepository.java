@@ -1,9 +1,44 @@
 package com.vaudoise.api.clientscontracts.Repository;
 
 import com.vaudoise.api.clientscontracts.model.Client;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
+
+    // client et ses contrats en une seule requête (fiche client)
+    @EntityGraph(attributePaths = "contracts")
+    Optional<Client> findWithContractsById(Long id);
+
+    // pagination par curseur : "id > dernier id vu" au lieu d'un OFFSET, coût constant quelle que soit la page
+    List<Client> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    @Query("select c from Client c where type(c) = :type and c.id > :afterId order by type(c), c.id")
+    List<Client> findPageByType(@Param("type") Class<? extends Client> type, @Param("afterId") Long afterId,
+            Limit limit);
+
+    // suppression directe, sans charger le client ni parcourir la cascade sur ses contrats
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Client c where c.id = :id")
+    int deleteDirectlyById(@Param("id") Long id);
+
+    // export : parcours de toute la table en flux (à consommer dans une transaction)
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = ContractRepository.EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true") })
+    @Query("select c from Client c order by c.id")
+    Stream<Client> streamAll();
 }
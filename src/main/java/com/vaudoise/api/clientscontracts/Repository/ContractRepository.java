@@ -1,14 +1,90 @@
 package com.vaudoise.api.clientscontracts.Repository;
 
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
 import com.vaudoise.api.clientscontracts.model.Contract;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface ContractRepository extends JpaRepository<Contract, Long> {
-    List<Contract> findByClientIdAndEndDateAfterOrEndDateIsNull(Long clientId, LocalDate currentDate);
-    List<Contract> findByClientIdAndUpdateDateAfter(Long clientId, LocalDate updateDate);
+
+    // nombre de lignes lues par aller-retour JDBC lors des exports en flux
+    String EXPORT_FETCH_SIZE = "1000";
+
+    // lectures exposées par l'API : projection "select new" sur les colonnes du contrat (c.client.id est la clé
+    // étrangère, pas de jointure), aucune entité n'est chargée ni suivie par le persistence context
+    String SUMMARY = "select new com.vaudoise.api.clientscontracts.dto.ContractSummaryDto("
+            + "c.id, c.client.id, c.startDate, c.endDate, c.costAmount, c.updateDate, c.version) from Contract c ";
+
+    // requête explicite : la version dérivée du nom donnait "client AND date OR date IS NULL"
+    // (contrats sans date de fin de tous les clients, parcours complet de la table)
+    @Query(SUMMARY + "where c.client.id = :clientId and (c.endDate > :currentDate or c.endDate is null)")
+    List<ContractSummaryDto> findByClientIdAndEndDateAfterOrEndDateIsNull(@Param("clientId") Long clientId,
+            @Param("currentDate") LocalDate currentDate);
+
+    @Query(SUMMARY + "where c.client.id = :clientId and c.updateDate > :updateDate")
+    List<ContractSummaryDto> findByClientIdAndUpdateDateAfter(@Param("clientId") Long clientId,
+            @Param("updateDate") LocalDateTime updateDate);
+
+    // pages (keyset) des deux requêtes précédentes, triées par id à partir du curseur afterId
+    @Query(SUMMARY + "where c.client.id = :clientId and (c.endDate > :currentDate or c.endDate is null) "
+            + "and c.id > :afterId order by c.client.id, c.id")
+    List<ContractSummaryDto> findActivePage(@Param("clientId") Long clientId, @Param("currentDate") LocalDate currentDate,
+            @Param("afterId") Long afterId, Limit limit);
+
+    @Query(SUMMARY + "where c.client.id = :clientId and c.updateDate > :updateDate "
+            + "and c.id > :afterId order by c.client.id, c.id")
+    List<ContractSummaryDto> findUpdatedAfterPage(@Param("clientId") Long clientId,
+            @Param("updateDate") LocalDateTime updateDate, @Param("afterId") Long afterId, Limit limit);
+
+    // agrégat des contrats actifs calculé par la base (une seule ligne, aucune entité chargée)
+    // le cast en BigDecimal évite les erreurs d'arrondi des doubles
+    @Query("select sum(cast(c.costAmount as BigDecimal)) as total, count(c) as count, min(c.endDate) as nextExpiry "
+            + "from Contract c where c.client.id = :clientId and (c.endDate is null or c.endDate > :today)")
+    ActiveContractsStats activeContractsStats(@Param("clientId") Long clientId, @Param("today") LocalDate today);
+
+    // version des contrats d'un client (ETag / Last-Modified) : lue dans l'index (client_id, update_date) sans charger de contrat
+    @Query("select max(c.updateDate) as lastUpdate, count(c) as count from Contract c where c.client.id = :clientId")
+    ContractsVersion contractsVersion(@Param("clientId") Long clientId);
+
+    // clôture de tous les contrats actifs d'un client en un seul UPDATE (aucune entité chargée)
+    // les UPDATE en masse incrémentent eux-mêmes la version : une écriture concurrente sur l'ancienne version échoue
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Contract c set c.endDate = :today, c.updateDate = :now, c.version = c.version + 1 "
+            + "where c.client.id = :clientId and (c.endDate > :today or c.endDate is null)")
+    int closeActiveContracts(@Param("clientId") Long clientId, @Param("today") LocalDate today,
+            @Param("now") LocalDateTime now);
+
+    // révision tarifaire des contrats actifs d'un client en un seul UPDATE, coût arrondi au centime
+    // produit calculé en décimal (10 * 1.0005 = 10.005 → 10.01), converti en double à l'écriture seulement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Contract c set c.costAmount = round(cast(c.costAmount as BigDecimal) * :factor, 2), c.updateDate = :now, "
+            + "c.version = c.version + 1 "
+            + "where c.client.id = :clientId and (c.endDate > :today or c.endDate is null)")
+    int scaleActiveCosts(@Param("clientId") Long clientId, @Param("factor") BigDecimal factor,
+            @Param("today") LocalDate today, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Contract c where c.client.id = :clientId")
+    int deleteByClientId(@Param("clientId") Long clientId);
+
+    // export : parcours de toute la table en flux (à consommer dans une transaction), client chargé dans la même requête
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true") })
+    @Query("select c from Contract c join fetch c.client order by c.id")
+    Stream<Contract> streamAll();
 }
@@ -0,0 +1,9 @@
+package com.vaudoise.api.clientscontracts.Repository;
+
+import java.time.LocalDateTime;
+
+// Projection de la version des contrats d'un client : change à chaque création ou modification de contrat
+public interface ContractsVersion {
+    LocalDateTime getLastUpdate();   // null si le client n'a aucun contrat
+    long getCount();
+}
@@ -0,0 +1,341 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.annotation.Timed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaudoise.api.clientscontracts.Repository.ChangeFeedRepository;
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeFeedEntry;
+import com.vaudoise.api.clientscontracts.model.ChangeSequence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Global feed of client and contract mutations. Writers {@link #record} their
+ * changes inside their own transaction; the entries are inserted without a
+ * number just before it commits, so writers never wait for each other. A
+ * background thread, woken by each commit, then numbers the committed entries
+ * in one short transaction holding the lock of the single
+ * {@link ChangeSequence} row: a burst of commits is numbered at once. Numbers
+ * are given in the order the entries become visible and without gaps (a
+ * rolled back transaction left no entry): once a consumer has read number
+ * {@code n}, no entry can appear below {@code n} afterwards, so resuming after
+ * the last number read misses nothing.
+ * <p>
+ * {@link #getChanges} and {@link #lastSequence} first number the entries
+ * already committed, so a writer reading the feed sees its own changes. Once
+ * numbered, the entries are also published as {@link CommittedChanges}.
+ * <p>
+ * Consumers can long-poll with {@link #awaitChangesAfter}: the wait ends at
+ * the first commit of this instance past their cursor, or when it expires.
+ * Entries older than {@code changes.feed.retention} are purged; a cursor
+ * pointing before them gets a {@link CursorExpiredException}.
+ */
+@Service
+@Timed("service.method")
+public class ChangeFeedService implements SmartInitializingSingleton, SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(ChangeFeedService.class);
+
+	// entrées numérotées par transaction au plus
+	private static final int NUMBERING_BATCH = 1000;
+
+	private final ChangeFeedRepository feedRepository;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final Duration retention;
+	private final Duration numberingInterval;
+
+	// dernier numéro attribué par cette instance, et consommateurs en attente d'un numéro plus grand
+	private final AtomicLong lastNumbered = new AtomicLong();
+	private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+	// une numérotation à la fois dans l'instance : les lots sont publiés dans l'ordre de leurs numéros
+	private final ReentrantLock numbering = new ReentrantLock();
+
+	private volatile boolean running;
+	private Thread numberer;
+
+	public ChangeFeedService(ChangeFeedRepository feedRepository, EntityManager entityManager,
+			TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+			@Value("${changes.feed.retention:P7D}") Duration retention,
+			@Value("${changes.feed.numbering-interval:PT1S}") Duration numberingInterval) {
+		this.feedRepository = feedRepository;
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+		this.eventPublisher = eventPublisher;
+		this.retention = retention;
+		this.numberingInterval = numberingInterval;
+	}
+
+	// la ligne du compteur existe avant que le serveur HTTP n'accepte la première écriture
+	@Override
+	public void afterSingletonsInstantiated() {
+		long last = this.transactionTemplate.execute(status -> {
+			ChangeSequence sequence = this.entityManager.find(ChangeSequence.class, ChangeSequence.ID);
+			if (sequence == null) {
+				sequence = new ChangeSequence();
+				this.entityManager.persist(sequence);
+			}
+			return sequence.getLastValue();
+		});
+		this.lastNumbered.accumulateAndGet(last, Math::max);
+	}
+
+	/**
+	 * Adds a change to the feed entries of the current transaction, written
+	 * when it commits and discarded if it rolls back.
+	 */
+	public void record(ChangeFeedEntry entry) {
+		pendingEntries().add(entry);
+	}
+
+	/**
+	 * Entries committed after {@code cursor}, oldest first. Throws
+	 * {@link CursorExpiredException} when entries right after the cursor have
+	 * been purged, or when the cursor is ahead of the feed.
+	 */
+	public List<ChangeDto> getChanges(long cursor, int size) {
+		numberBeforeReading();
+		List<ChangeDto> changes = this.feedRepository.findAfter(cursor, Limit.of(size));
+		if (!changes.isEmpty()) {
+			if (changes.get(0).getSequence() != cursor + 1) {
+				throw new CursorExpiredException(cursor);
+			}
+			return changes;
+		}
+		long last = this.feedRepository.lastSequence();
+		if (cursor > last) {
+			throw new CursorExpiredException(cursor);
+		}
+		// numéro lu après la page : s'il dépasse le curseur, relire pour distinguer un commit concurrent d'une purge
+		if (cursor < last && this.feedRepository.findAfter(cursor, Limit.of(1)).isEmpty()) {
+			throw new CursorExpiredException(cursor);
+		}
+		return changes;
+	}
+
+	/**
+	 * Last number given, once the entries already committed are numbered.
+	 */
+	public long lastSequence() {
+		numberBeforeReading();
+		return this.feedRepository.lastSequence();
+	}
+
+	/**
+	 * Completes when this instance numbers entries after {@code cursor}, or
+	 * after {@code timeout}. Entries numbered by other instances are only seen
+	 * once the wait has expired.
+	 */
+	public CompletableFuture<Void> awaitChangesAfter(long cursor, Duration timeout) {
+		CompletableFuture<Void> signal = new CompletableFuture<>();
+		this.waiters.add(signal);
+		// commit survenu entre la lecture du consommateur et son inscription
+		if (this.lastNumbered.get() > cursor) {
+			signal.complete(null);
+		}
+		return signal.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+				.whenComplete((ignored, failure) -> this.waiters.remove(signal));
+	}
+
+	@Scheduled(cron = "${changes.feed.purge-cron:0 0 3 * * *}")
+	public int purge() {
+		numberBeforeReading();
+		LocalDateTime before = LocalDateTime.now().minus(this.retention);
+		int deleted = this.transactionTemplate.execute(status -> this.feedRepository.deleteChangedBefore(before));
+		log.info("Change feed purge done, {} entries older than {} deleted", deleted, before);
+		return deleted;
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+		this.numberer = new Thread(this::run, "change-feed-numbering");
+		this.numberer.setDaemon(true);
+		this.numberer.start();
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		LockSupport.unpark(this.numberer);
+		try {
+			this.numberer.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	// arrêté après l'écriture différée des coûts (ses derniers commits sont numérotés) et avant le journal des
+	// mutations, qui les reçoit ainsi
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 3584;
+	}
+
+	// réveillé par chaque commit ; l'intervalle rattrape une numérotation en échec
+	private void run() {
+		while (this.running) {
+			try {
+				numberCommitted();
+			} catch (RuntimeException e) {
+				log.warn("Change feed numbering failed, retrying in {}", this.numberingInterval, e);
+			}
+			LockSupport.parkNanos(this, this.numberingInterval.toNanos());
+		}
+		// commits arrivés pendant l'arrêt
+		try {
+			numberCommitted();
+		} catch (RuntimeException e) {
+			log.error("Change feed numbering failed while stopping", e);
+		}
+	}
+
+	// lecture de ses propres écritures ; une autre instance qui numérote au même moment les rendra visibles
+	private void numberBeforeReading() {
+		try {
+			numberCommitted();
+		} catch (ConcurrencyFailureException e) {
+			log.debug("Change feed being numbered by another instance: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Numbers the committed entries that have no number yet, oldest insert
+	 * first, and publishes them. Takes no lock when there is nothing to number.
+	 * Called outside of any transaction.
+	 */
+	private void numberCommitted() {
+		if (!this.feedRepository.existsBySeqIsNull()) {
+			return;
+		}
+		this.numbering.lock();
+		try {
+			List<ChangeFeedEntry> numbered;
+			do {
+				numbered = this.transactionTemplate.execute(status -> numberBatch());
+				published(numbered);
+			} while (numbered.size() == NUMBERING_BATCH);
+		} finally {
+			this.numbering.unlock();
+		}
+	}
+
+	// compteur verrouillé avant la lecture : une autre instance ne peut pas numéroter les mêmes entrées
+	private List<ChangeFeedEntry> numberBatch() {
+		ChangeSequence sequence = this.entityManager.find(ChangeSequence.class, ChangeSequence.ID,
+				LockModeType.PESSIMISTIC_WRITE);
+		List<ChangeFeedEntry> entries = this.feedRepository.findBySeqIsNullOrderByIdAsc(Limit.of(NUMBERING_BATCH));
+		long seq = sequence.allocate(entries.size());
+		for (ChangeFeedEntry entry : entries) {
+			entry.number(seq++);
+		}
+		return entries;
+	}
+
+	private void published(List<ChangeFeedEntry> numbered) {
+		if (numbered.isEmpty()) {
+			return;
+		}
+		this.lastNumbered.accumulateAndGet(numbered.get(numbered.size() - 1).getSeq(), Math::max);
+		CompletableFuture<Void> waiter;
+		while ((waiter = this.waiters.poll()) != null) {
+			waiter.complete(null);
+		}
+		this.eventPublisher.publishEvent(new CommittedChanges(numbered.stream()
+				.map(entry -> new ChangeDto(entry.getSeq(), entry.getType(), entry.getClientId(), entry.getContractId(),
+						entry.getStartDate(), entry.getEndDate(), entry.getCostAmount(), entry.getChangedAt()))
+				.toList()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<ChangeFeedEntry> pendingEntries() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Changes can only be recorded inside a transaction");
+		}
+		List<ChangeFeedEntry> pending = (List<ChangeFeedEntry>) TransactionSynchronizationManager.getResource(this);
+		if (pending == null) {
+			pending = new ArrayList<>();
+			TransactionSynchronizationManager.bindResource(this, pending);
+			TransactionSynchronizationManager.registerSynchronization(new FeedSynchronization(pending));
+		}
+		return pending;
+	}
+
+	/**
+	 * Inserts the entries of one transaction, without a number and without
+	 * any lock, and wakes up the numbering thread once they are committed.
+	 */
+	private final class FeedSynchronization implements TransactionSynchronization {
+
+		private final List<ChangeFeedEntry> pending;
+
+		FeedSynchronization(List<ChangeFeedEntry> pending) {
+			this.pending = pending;
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			LocalDateTime now = LocalDateTime.now();
+			for (ChangeFeedEntry entry : this.pending) {
+				entry.recorded(now);
+				entityManager.persist(entry);
+			}
+		}
+
+		@Override
+		public void afterCommit() {
+			if (!this.pending.isEmpty()) {
+				LockSupport.unpark(numberer);
+			}
+		}
+
+		// une transaction REQUIRES_NEW imbriquée a ses propres entrées
+		@Override
+		public void suspend() {
+			TransactionSynchronizationManager.unbindResource(ChangeFeedService.this);
+		}
+
+		@Override
+		public void resume() {
+			TransactionSynchronizationManager.bindResource(ChangeFeedService.this, this.pending);
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(ChangeFeedService.this);
+		}
+	}
+}
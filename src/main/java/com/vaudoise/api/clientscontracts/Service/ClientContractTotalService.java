@@ -0,0 +1,198 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.micrometer.core.annotation.Timed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.vaudoise.api.clientscontracts.Repository.ActiveContractsStats;
+import com.vaudoise.api.clientscontracts.Repository.ClientContractTotalRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.model.ClientContractTotal;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+/**
+ * Maintains the per-client aggregate of active contracts (cost and count).
+ * Writers call the {@code contract*}/{@code clientDeleted} hooks inside their
+ * own transaction; readers get the total with a primary-key lookup.
+ * Expiry needs no write : a row is recomputed from the contracts when it is
+ * missing or when its next expiry date has been reached.
+ * <p>
+ * A recomputation reads the contracts then writes the row, in its own
+ * transaction: if a writer changed the row in between (its version moved),
+ * or created it first, the recomputation is replayed on fresh data rather
+ * than overwriting the writer's delta with stale values. A writer that
+ * finds no row, and a set-based repricing, write the row as expired instead:
+ * a recomputation that read the contracts before their commit then collides
+ * with it (key or version) and is replayed, and the next read recomputes.
+ */
+@Service
+@Timed("service.method")
+public class ClientContractTotalService {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientContractTotalService.class);
+	private static final int RECONCILIATION_BATCH_SIZE = 500;
+
+	private final ClientContractTotalRepository totalRepository;
+	private final ContractRepository contractRepository;
+	private final OptimisticRetry optimisticRetry;
+
+	public ClientContractTotalService(ClientContractTotalRepository totalRepo, ContractRepository contractRepo,
+			OptimisticRetry optimisticRetry) {
+		this.totalRepository = totalRepo;
+		this.contractRepository = contractRepo;
+		this.optimisticRetry = optimisticRetry;
+	}
+
+	// pas de transaction englobante : un recalcul en conflit est rejoué dans une nouvelle transaction
+	public ClientContractTotal getTotal(long clientId) {
+		LocalDate today = LocalDate.now();
+		return this.totalRepository.findById(clientId)
+				.filter(total -> total.isValidOn(today))
+				.orElseGet(() -> recomputeConcurrently(clientId, today));
+	}
+
+	@Transactional
+	public void contractCreated(Contract contract) {
+		LocalDate today = LocalDate.now();
+		if (!isActive(contract, today)) {
+			return;
+		}
+		long clientId = contract.getClient().getId();
+		if (addToTotal(clientId, cost(contract.getCostAmount()), 1) && contract.getEndDate() != null) {
+			this.totalRepository.lowerNextExpiry(clientId, contract.getEndDate());
+		}
+	}
+
+	@Transactional
+	public void costChanged(Contract contract, Double previousCost) {
+		if (isActive(contract, LocalDate.now())) {
+			addToTotal(contract.getClient().getId(), costDelta(contract, previousCost), 0);
+		}
+	}
+
+	// change of the client's active total caused by a new cost, zero for a closed contract
+	public BigDecimal costDelta(Contract contract, Double previousCost) {
+		if (!isActive(contract, LocalDate.now())) {
+			return BigDecimal.ZERO;
+		}
+		return cost(contract.getCostAmount()).subtract(cost(previousCost));
+	}
+
+	// deltas already summed per client by the caller : one UPDATE per client, not per contract
+	@Transactional
+	public void costsChanged(Map<Long, BigDecimal> deltaByClient) {
+		deltaByClient.forEach((clientId, delta) -> {
+			if (delta.signum() != 0) {
+				addToTotal(clientId, delta, 0);
+			}
+		});
+	}
+
+	// set-based repricing : the new costs are only known by the database, the row is recomputed on the next read
+	@Transactional
+	public void contractsRepriced(long clientId) {
+		this.totalRepository.markExpired(clientId, LocalDate.now());
+	}
+
+	@Transactional
+	public void clientDeleted(long clientId) {
+		this.totalRepository.deleteByClientId(clientId);
+	}
+
+	/**
+	 * Compares every stored aggregate with the contracts it summarizes and
+	 * repairs the rows that drifted. Returns the number of corrected rows.
+	 */
+	@Scheduled(cron = "${contracts.totals.reconciliation-cron:0 30 2 * * *}")
+	public int reconcile() {
+		int corrected = 0;
+		long after = 0;
+		List<Long> clientIds;
+		do {
+			clientIds = this.totalRepository.findClientIdsAfter(after, Limit.of(RECONCILIATION_BATCH_SIZE));
+			for (Long clientId : clientIds) {
+				if (this.optimisticRetry.retrying(() -> reconcileClient(clientId))) {
+					corrected++;
+				}
+				after = clientId;
+			}
+		} while (clientIds.size() == RECONCILIATION_BATCH_SIZE);
+		log.info("Contract totals reconciliation done, {} row(s) corrected", corrected);
+		return corrected;
+	}
+
+	private boolean reconcileClient(long clientId) {
+		ClientContractTotal stored = this.totalRepository.findById(clientId).orElse(null);
+		if (stored == null) {
+			return false;
+		}
+		LocalDate today = LocalDate.now();
+		ActiveContractsStats stats = this.contractRepository.activeContractsStats(clientId, today);
+		BigDecimal expectedCost = cost(stats.getTotal());
+		if (stored.getActiveCost().compareTo(expectedCost) == 0 && stored.getActiveCount() == stats.getCount()
+				&& Objects.equals(stored.getNextExpiry(), stats.getNextExpiry())) {
+			return false;
+		}
+		log.warn("Contract total of client {} drifted: stored {} ({} contracts), actual {} ({} contracts)",
+				clientId, stored.getActiveCost(), stored.getActiveCount(), expectedCost, stats.getCount());
+		apply(stored, stats);
+		return true;
+	}
+
+	private ClientContractTotal recomputeConcurrently(long clientId, LocalDate today) {
+		try {
+			return this.optimisticRetry.retrying(() -> recompute(clientId, today));
+		} catch (DataIntegrityViolationException e) {
+			// ligne créée entre-temps par une autre lecture : relue et recalculée
+			log.debug("Contract total of client {} created concurrently, recomputing: {}", clientId, e.getMessage());
+			return this.optimisticRetry.retrying(() -> recompute(clientId, today));
+		}
+	}
+
+	// version vérifiée au flush : une écriture commitée depuis la lecture fait rejouer le calcul
+	private ClientContractTotal recompute(long clientId, LocalDate today) {
+		ClientContractTotal total = this.totalRepository.findById(clientId)
+				.orElseGet(() -> new ClientContractTotal(clientId));
+		apply(total, this.contractRepository.activeContractsStats(clientId, today));
+		return this.totalRepository.saveAndFlush(total);
+	}
+
+	// pas encore d'agrégat pour ce client : ligne expirée, calculée à la première lecture nouveau contrat inclus,
+	// plutôt qu'aucune ligne qu'un recalcul lu avant ce commit pourrait créer sans la modification
+	private boolean addToTotal(long clientId, BigDecimal delta, long count) {
+		if (this.totalRepository.addToTotal(clientId, delta, count) > 0) {
+			return true;
+		}
+		this.totalRepository.markExpired(clientId, LocalDate.now());
+		return false;
+	}
+
+	private void apply(ClientContractTotal total, ActiveContractsStats stats) {
+		total.setActiveCost(cost(stats.getTotal()));
+		total.setActiveCount(stats.getCount());
+		total.setNextExpiry(stats.getNextExpiry());
+	}
+
+	private static boolean isActive(Contract contract, LocalDate today) {
+		return contract.getEndDate() == null || contract.getEndDate().isAfter(today);
+	}
+
+	private static BigDecimal cost(Number amount) {
+		if (amount == null) {
+			return BigDecimal.ZERO;
+		}
+		return amount instanceof BigDecimal decimal ? decimal : BigDecimal.valueOf(amount.doubleValue());
+	}
+}
@@ -0,0 +1,176 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.annotation.Timed;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaudoise.api.clientscontracts.config.CacheConfig;
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.dto.ImportReport;
+import com.vaudoise.api.clientscontracts.mapper.ClientMapper;
+import com.vaudoise.api.clientscontracts.model.ChangeFeedEntry;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Bulk import of clients with their contracts. Rows are read one at a time,
+ * validated, and persisted by batches of {@code clients.import.batch-size} in
+ * one transaction each, which is also the JDBC batch size of the session.
+ * When the database rejects a batch, its rows are replayed one by one so that
+ * only the faulty rows are reported as errors.
+ */
+@Service
+@Timed("service.method")
+public class ClientImportService {
+
+	private final ClientMapper clientMapper;
+	private final ChangeFeedService changeFeedService;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final Validator validator;
+	private final int batchSize;
+
+	public ClientImportService(ClientMapper clientMapper, ChangeFeedService changeFeedService,
+			EntityManager entityManager, TransactionTemplate transactionTemplate, Validator validator,
+			@Value("${clients.import.batch-size:500}") int batchSize) {
+		this.clientMapper = clientMapper;
+		this.changeFeedService = changeFeedService;
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+		this.validator = validator;
+		this.batchSize = batchSize;
+	}
+
+	// new ids may have been cached as absent by earlier lookups
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, allEntries = true)
+	public ImportReport importClients(Iterator<ClientDto> rows) {
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport();
+		List<ClientDto> batch = new ArrayList<>(this.batchSize);
+		long rowNumber = 0;
+		while (true) {
+			ClientDto row;
+			try {
+				if (!rows.hasNext()) {
+					break;
+				}
+				row = rows.next();
+			} catch (RuntimeException e) {
+				// JSON illisible : on ne peut pas se resynchroniser, les lignes suivantes ne sont pas lues
+				report.addError(rowNumber + 1, "Malformed row: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+				break;
+			}
+			rowNumber++;
+			batch.add(row);
+			if (batch.size() == this.batchSize) {
+				importBatch(batch, rowNumber - batch.size() + 1, report);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			importBatch(batch, rowNumber - batch.size() + 1, report);
+		}
+		report.finish(System.nanoTime() - start);
+		return report;
+	}
+
+	private void importBatch(List<ClientDto> batch, long firstRow, ImportReport report) {
+		List<ClientDto> validRows = new ArrayList<>(batch.size());
+		List<Long> validRowNumbers = new ArrayList<>(batch.size());
+		List<Client> clients = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			long row = firstRow + i;
+			try {
+				Client client = toEntity(batch.get(i));
+				Set<ConstraintViolation<Client>> violations = this.validator.validate(client);
+				if (!violations.isEmpty()) {
+					ConstraintViolation<Client> violation = violations.iterator().next();
+					report.addError(row, violation.getPropertyPath() + " " + violation.getMessage());
+					continue;
+				}
+				clients.add(client);
+				validRows.add(batch.get(i));
+				validRowNumbers.add(row);
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				report.addError(row, e.getMessage());
+			}
+		}
+		if (clients.isEmpty()) {
+			return;
+		}
+
+		try {
+			this.transactionTemplate.executeWithoutResult(status -> persistAll(clients));
+			report.addImported(clients.size());
+		} catch (RuntimeException batchFailure) {
+			for (int i = 0; i < validRows.size(); i++) {
+				Client client = toEntity(validRows.get(i));
+				try {
+					this.transactionTemplate.executeWithoutResult(status -> persistAll(List.of(client)));
+					report.addImported(1);
+				} catch (RuntimeException e) {
+					report.addError(validRowNumbers.get(i), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+				}
+			}
+		}
+	}
+
+	private void persistAll(List<Client> clients) {
+		this.entityManager.unwrap(Session.class).setJdbcBatchSize(this.batchSize);
+		for (Client client : clients) {
+			this.entityManager.persist(client);
+			this.changeFeedService.record(ChangeFeedEntry.client(ChangeType.CLIENT_CREATED, client.getId()));
+			for (Contract contract : client.getContracts()) {
+				this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_CREATED, contract));
+			}
+		}
+		this.entityManager.flush();
+		this.entityManager.clear();
+	}
+
+	// même conversion que POST /api/clients, complétée des champs qu'elle ignore (date de naissance, coût des contrats)
+	// et sans les id fournis : les lignes importées sont toujours de nouvelles lignes
+	private Client toEntity(ClientDto dto) {
+		Client client;
+		if ("PERSON".equalsIgnoreCase(dto.getClientType())) {
+			Person person = this.clientMapper.toPerson(dto);
+			if (dto.getBirthdate() != null) {
+				person.setBirthDate(LocalDate.parse(dto.getBirthdate()));
+			}
+			client = person;
+		} else if ("COMPANY".equalsIgnoreCase(dto.getClientType())) {
+			client = this.clientMapper.toCompany(dto);
+		} else {
+			throw new IllegalArgumentException("Unknown client type: " + dto.getClientType());
+		}
+		client.setId(null);
+		if (client.getContracts() == null) {
+			client.setContracts(new ArrayList<>());
+		}
+		for (int i = 0; i < client.getContracts().size(); i++) {
+			Contract contract = client.getContracts().get(i);
+			contract.setId(null);
+			contract.setCostAmount(dto.getContracts().get(i).getCost());
+			contract.setClient(client);
+		}
+		return client;
+	}
+}
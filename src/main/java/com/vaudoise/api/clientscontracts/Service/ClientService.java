@@ -1,81 +1,202 @@
 package com.vaudoise.api.clientscontracts.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.EntityNotFoundException;
+
+import io.micrometer.core.annotation.Timed;
+
+import org.hibernate.Hibernate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
 import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractsVersion;
+import com.vaudoise.api.clientscontracts.config.CacheConfig;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.model.ChangeFeedEntry;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
 import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Company;
 import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
 
 @Service
+@Timed("service.method")
 public class ClientService {
 	
 	private final ClientRepository clientRepository;
     private final ContractRepository contractRepository;
+    private final ClientContractTotalService contractTotalService;
+    private final ChangeFeedService changeFeedService;
+    private final OptimisticRetry optimisticRetry;
 	
     // constructor of the service client class
-	public ClientService(ClientRepository clientRepo, ContractRepository contractRepo) {
+	public ClientService(ClientRepository clientRepo, ContractRepository contractRepo,
+			ClientContractTotalService contractTotalService, ChangeFeedService changeFeedService,
+			OptimisticRetry optimisticRetry) {
 		this.clientRepository = clientRepo;
 		this.contractRepository = contractRepo;
+		this.contractTotalService = contractTotalService;
+		this.changeFeedService = changeFeedService;
+		this.optimisticRetry = optimisticRetry;
+	}
+	
+	// does a client with this id exist : the controllers only need that before reading its contracts
+	// cached (absent clients too) as a plain flag, nothing mutable is shared between threads
+	// sync : the lookup runs inside the cache entry, the eviction of a create / delete committing meanwhile
+	// waits for it and removes its result, instead of being overwritten by a flag read before the commit
+	@Cacheable(cacheNames = CacheConfig.CLIENTS, key = "#id", sync = true)
+	@Transactional(readOnly = true)
+	public boolean clientExists(long id) {
+		return this.clientRepository.existsById(id);
 	}
 	
-	// read the client that have an id 
-	// this id could be not found in the client repository
-	public Optional<Client> getClient(long id) {
-		return this.clientRepository.findById(id);
+	// client and its contracts in one query, never cached
+	@Transactional(readOnly = true)
+	public Optional<Client> getClientWithContracts(long id) {
+		return this.clientRepository.findWithContractsById(id);
+	}
+	
+	// page de clients (keyset) : les clients d'id > afterId, éventuellement filtrés sur le type (PERSON / COMPANY)
+	// un type inconnu leve une IllegalArgumentException
+	// les contrats sont chargés avant la fin de la transaction (par lots, default_batch_fetch_size)
+	@Transactional(readOnly = true)
+	public List<Client> getClients(String clientType, long afterId, int size) {
+		List<Client> clients;
+		if (clientType == null) {
+			clients = this.clientRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+		} else {
+			clients = this.clientRepository.findPageByType(clientClass(clientType), afterId, Limit.of(size));
+		}
+		clients.forEach(client -> Hibernate.initialize(client.getContracts()));
+		return clients;
+	}
+	
+	private static Class<? extends Client> clientClass(String clientType) {
+		if ("PERSON".equalsIgnoreCase(clientType)) {
+			return Person.class;
+		}
+		if ("COMPANY".equalsIgnoreCase(clientType)) {
+			return Company.class;
+		}
+		throw new IllegalArgumentException("Unknown client type: " + clientType);
 	}
 	
 	// creer un client = ajouter dans le repo
+	// the new id may have been cached as absent by an earlier lookup
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, key = "#result.id")
+	@Transactional
 	public Client createClient(Client client) {
-		return this.clientRepository.save(client);
+		Client savedClient = this.clientRepository.save(client);
+		this.changeFeedService.record(ChangeFeedEntry.client(ChangeType.CLIENT_CREATED, savedClient.getId()));
+		// contrats enregistrés avec le client (cascade), ceux qui lui sont rattachés
+		if (savedClient.getContracts() != null) {
+			for (Contract contract : savedClient.getContracts()) {
+				if (contract.getClient() == savedClient) {
+					this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_CREATED, contract));
+				}
+			}
+		}
+		return savedClient;
 	}
 	
 	// update client by id in the repo by the informations containing in the updatedclient object 
 	// if the id doesnt exist in the repo an exception occured with a message Client not found
+	// the contracts are loaded with the client : the caller maps them once the transaction is over
+	// replayed on the fresh client when a concurrent update won the version check
 	public Client updateClient(long id, Client updatedClient) {
-		return this.clientRepository.findById(id).map(
+		return this.optimisticRetry.retrying(() -> changeClient(id, updatedClient, null));
+	}
+	
+	// conditional update (If-Match) : OptimisticLockingFailureException, not retried,
+	// when the client is no longer at the expected version (null : unconditional)
+	public Client updateClient(long id, Client updatedClient, Long expectedVersion) {
+		if (expectedVersion == null) {
+			return this.optimisticRetry.retrying(() -> changeClient(id, updatedClient, null));
+		}
+		return this.optimisticRetry.once(() -> changeClient(id, updatedClient, expectedVersion));
+	}
+	
+	private Client changeClient(long id, Client updatedClient, Long expectedVersion) {
+		return this.clientRepository.findWithContractsById(id).map(
 				client -> {
+					if (expectedVersion != null && !expectedVersion.equals(client.getVersion())) {
+						throw new ObjectOptimisticLockingFailureException(Client.class, id);
+					}
 					client.setName(updatedClient.getName());
 					client.setPhone(updatedClient.getPhone());
 					client.setEmail(updatedClient.getEmail());
-					return this.clientRepository.save(client);
+					this.changeFeedService.record(ChangeFeedEntry.client(ChangeType.CLIENT_UPDATED, id));
+					return this.clientRepository.saveAndFlush(client);
 				}
 				).orElseThrow(() -> new RuntimeException("Client Not found")) ;
 	}
 	
-	public List<Contract> deleteClient(long id) {
-		// extraire les contrats dun client par id
-		List<Contract> contracts = this.contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(id, LocalDate.now());
-		
-		// modifie end date de chaque contract
-		for (Contract c : contracts) {
-			c.setEndDate(LocalDate.now());
+	// set-based : un UPDATE pour clôturer les contrats actifs, puis DELETE directs des contrats et du client
+	// (mêmes lignes supprimées que la cascade de Client.contracts), le tout dans une transaction
+	// returns the number of contracts that were still active
+	// the closed contracts are read first, for the change feed
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, key = "#id")
+	public int deleteClient(long id) {
+		LocalDate today = LocalDate.now();
+		List<ContractSummaryDto> activeContracts = this.contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(id, today);
+		int closedContracts = this.contractRepository.closeActiveContracts(id, today, LocalDateTime.now());
+		this.contractRepository.deleteByClientId(id);
+		this.contractTotalService.clientDeleted(id);
+		if (this.clientRepository.deleteDirectlyById(id) == 0) {
+			throw new EntityNotFoundException("Client not found");
+		}
+		for (ContractSummaryDto contract : activeContracts) {
+			this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_CLOSED, id, contract.getId(),
+					contract.getStartDate(), today, contract.getCostAmount()));
 		}
-		//maJ dans le repo
-		List<Contract> savedcontracts = this.contractRepository.saveAll(contracts);
-		//suppression du client
-		this.clientRepository.deleteById(id);
-		return savedcontracts;
+		this.changeFeedService.record(ChangeFeedEntry.client(ChangeType.CLIENT_DELETED, id));
+		return closedContracts;
 	}
 	
-	public List<Contract> getActiveContracts(long idClient) {
-	      List<Contract> activecontracts = this.contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(idClient, LocalDate.now());
+	@Transactional(readOnly = true)
+	public List<ContractSummaryDto> getActiveContracts(long idClient) {
+	      List<ContractSummaryDto> activecontracts = this.contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(idClient, LocalDate.now());
 	      return activecontracts;
 	}
 	
-	public List<Contract> getActiveContractsFilteredByUpdatedDate(long idClient, LocalDate updatedDate) {
-		List<Contract> filteredactivecontracts = this.contractRepository.findByClientIdAndUpdateDateAfter(idClient, updatedDate);
+	@Transactional(readOnly = true)
+	public List<ContractSummaryDto> getActiveContracts(long idClient, long afterId, int size) {
+		return this.contractRepository.findActivePage(idClient, LocalDate.now(), afterId, Limit.of(size));
+	}
+	
+	@Transactional(readOnly = true)
+	public List<ContractSummaryDto> getActiveContractsFilteredByUpdatedDate(long idClient, LocalDate updatedDate) {
+		List<ContractSummaryDto> filteredactivecontracts = this.contractRepository.findByClientIdAndUpdateDateAfter(idClient, updatedDate.atStartOfDay());
 		return filteredactivecontracts;
 	}
 	
-	public double getActiveContractsTotal(long idClient) {
-		List<Contract> activecontracts = this.contractRepository.findByClientIdAndUpdateDateAfter(idClient, LocalDate.now());
-		return activecontracts.stream().mapToDouble(Contract::getCostAmount).sum();
+	@Transactional(readOnly = true)
+	public List<ContractSummaryDto> getActiveContractsFilteredByUpdatedDate(long idClient, LocalDate updatedDate, long afterId, int size) {
+		return this.contractRepository.findUpdatedAfterPage(idClient, updatedDate.atStartOfDay(), afterId, Limit.of(size));
+	}
+	
+	// version des contrats du client, pour les requêtes conditionnelles : aucun contrat n'est chargé
+	@Transactional(readOnly = true)
+	public ContractsVersion getContractsVersion(long idClient) {
+		return this.contractRepository.contractsVersion(idClient);
+	}
+	
+	// total des contrats actifs (sans date de fin ou date de fin future), lu dans l'agrégat matérialisé
+	// sans transaction ici : l'agrégat absent ou expiré est recalculé dans sa propre transaction, rejouée en cas de conflit
+	public BigDecimal getActiveContractsTotal(long idClient) {
+		return this.contractTotalService.getTotal(idClient).getActiveCost();
 	}
 	
 	
@@ -0,0 +1,10 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.util.List;
+
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+
+// entrées commitées du flux de modifications, publiées (événement Spring) dans l'ordre de leurs numéros une fois
+// numérotées, sur le thread de la numérotation : les écouteurs ne doivent pas bloquer
+public record CommittedChanges(List<ChangeDto> changes) {
+}
@@ -0,0 +1,323 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Server-Sent Events of contract changes (creation, cost update, closing),
+ * for one client or for all clients, pushed once the changes are committed
+ * and numbered ({@link CommittedChanges}). The event id is the change feed
+ * sequence number: after a reconnection, {@code GET /api/changes?cursor=<id>}
+ * returns what was missed.
+ * <p>
+ * Neither the writers nor the feed numbering thread wait for subscribers:
+ * each numbered batch is handed to a single dispatcher thread, which copies the changes into the bounded buffer
+ * ({@code contracts.events.buffer-size}) of every matching subscriber; the
+ * sends run on their own pool of {@code contracts.events.sender-threads}
+ * threads, one drain at a time per subscriber, so a slow client never holds
+ * a thread of the application task executor. A subscriber whose buffer
+ * overflows cannot keep up (or has received a batch larger than its buffer,
+ * such as a bulk repricing), and one whose send has been blocked for more
+ * than {@code contracts.events.send-timeout} has stopped reading: its stream
+ * is closed and it catches up from the change feed. The thread of a blocked
+ * send is given back when the write fails, at the latest after the write
+ * timeout of the servlet container.
+ */
+@Service
+public class ContractEventService implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(ContractEventService.class);
+
+	private static final Set<ChangeType> CONTRACT_CHANGES = EnumSet.of(ChangeType.CONTRACT_CREATED,
+			ChangeType.CONTRACT_COST_UPDATED, ChangeType.CONTRACT_CLOSED);
+
+	// éléments non envoyés comme événements : commentaire de maintien de la connexion, fin du flux
+	private static final Object HEARTBEAT = new Object();
+	private static final Object END = new Object();
+
+	private final Map<Long, Set<Subscriber>> subscribersByClient = new ConcurrentHashMap<>();
+	private final Set<Subscriber> allClientsSubscribers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "contract-events");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// au plus une vidange en file par abonné : la file des envois est bornée par le nombre d'abonnés
+	private final ThreadPoolExecutor senders;
+	// envois en cours et leur début, surveillés par evictStalledSubscribers
+	private final Map<Subscriber, Long> sending = new ConcurrentHashMap<>();
+	private final int bufferSize;
+	private final int maxSubscribers;
+	private final Duration timeout;
+	private final long sendTimeoutNanos;
+	private final Counter evictions;
+
+	public ContractEventService(MeterRegistry meterRegistry,
+			@Value("${contracts.events.buffer-size:1024}") int bufferSize,
+			@Value("${contracts.events.max-subscribers:10000}") int maxSubscribers,
+			@Value("${contracts.events.timeout:PT30M}") Duration timeout,
+			@Value("${contracts.events.sender-threads:4}") int senderThreads,
+			@Value("${contracts.events.send-timeout:PT10S}") Duration sendTimeout) {
+		AtomicInteger senderCount = new AtomicInteger();
+		this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(maxSubscribers), runnable -> {
+					Thread thread = new Thread(runnable, "contract-events-send-" + senderCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.bufferSize = bufferSize;
+		this.maxSubscribers = maxSubscribers;
+		this.timeout = timeout;
+		this.sendTimeoutNanos = sendTimeout.toNanos();
+		Gauge.builder("contracts.events.subscribers", this.subscriberCount, AtomicInteger::get)
+				.description("Open Server-Sent Events subscriptions to contract changes")
+				.register(meterRegistry);
+		this.evictions = Counter.builder("contracts.events.evictions")
+				.description("Subscriptions closed because their buffer overflowed or a send stayed blocked")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Opens a stream of the contract changes of {@code clientId}, or of every
+	 * client when it is {@code null}. Empty when {@code contracts.events.max-subscribers}
+	 * streams are already open.
+	 */
+	public Optional<SseEmitter> subscribe(Long clientId) {
+		if (this.subscriberCount.incrementAndGet() > this.maxSubscribers) {
+			this.subscriberCount.decrementAndGet();
+			return Optional.empty();
+		}
+		Subscriber subscriber = new Subscriber(clientId, new SseEmitter(this.timeout.toMillis()), this.bufferSize);
+		if (clientId == null) {
+			this.allClientsSubscribers.add(subscriber);
+		} else {
+			this.subscribersByClient.compute(clientId, (id, subscribers) -> {
+				Set<Subscriber> set = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+				set.add(subscriber);
+				return set;
+			});
+		}
+		// flux terminé par le conteneur : plus rien à compléter
+		subscriber.emitter.onCompletion(() -> ended(subscriber));
+		subscriber.emitter.onTimeout(() -> ended(subscriber));
+		subscriber.emitter.onError(failure -> ended(subscriber));
+		return Optional.of(subscriber.emitter);
+	}
+
+	// appelé sur le thread de numérotation du flux, lot par lot dans l'ordre des numéros : un seul passage de relais
+	// au thread de diffusion, dont la file n'est pas bornée (la numérotation n'attend jamais les abonnés)
+	@EventListener
+	public void onCommitted(CommittedChanges committed) {
+		if (this.subscriberCount.get() > 0) {
+			this.dispatcher.execute(() -> dispatch(committed.changes()));
+		}
+	}
+
+	// commentaire périodique : garde la connexion ouverte à travers les proxys et détecte les clients partis
+	@Scheduled(fixedDelayString = "${contracts.events.heartbeat:PT30S}")
+	public void heartbeat() {
+		if (this.subscriberCount.get() > 0) {
+			this.dispatcher.execute(() -> {
+				List<Subscriber> all = new ArrayList<>(this.allClientsSubscribers);
+				this.subscribersByClient.values().forEach(all::addAll);
+				all.forEach(subscriber -> offer(subscriber, HEARTBEAT));
+				all.forEach(this::scheduleDrain);
+			});
+		}
+	}
+
+	// envoi bloqué au-delà de contracts.events.send-timeout : l'abonné ne lit plus, son flux est fermé sans attendre
+	// que d'autres événements remplissent son tampon ; la vidange en cours le termine quand l'écriture rend la main
+	@Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+	public void evictStalledSubscribers() {
+		long now = System.nanoTime();
+		this.sending.forEach((subscriber, since) -> {
+			if (now - since > this.sendTimeoutNanos && !subscriber.closed.get()) {
+				log.debug("Closing the contract events stream of client {}: send blocked for more than {} ms",
+						subscriber.clientId, TimeUnit.NANOSECONDS.toMillis(this.sendTimeoutNanos));
+				evict(subscriber);
+			}
+		});
+	}
+
+	@Override
+	public void destroy() {
+		this.dispatcher.shutdownNow();
+		this.senders.shutdownNow();
+		this.allClientsSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+		this.subscribersByClient.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+	}
+
+	// tout le lot est réparti avant de lancer les envois : un envoi par abonné et par lot
+	private void dispatch(List<ChangeDto> changes) {
+		Set<Subscriber> touched = new HashSet<>();
+		for (ChangeDto change : changes) {
+			if (CONTRACT_CHANGES.contains(change.getType())) {
+				deliver(this.allClientsSubscribers, change, touched);
+				deliver(this.subscribersByClient.get(change.getClientId()), change, touched);
+			} else if (change.getType() == ChangeType.CLIENT_DELETED) {
+				// client supprimé : plus rien à suivre, ses flux se terminent après leurs derniers événements
+				deliver(this.subscribersByClient.get(change.getClientId()), END, touched);
+			}
+		}
+		touched.forEach(this::scheduleDrain);
+	}
+
+	private void deliver(Set<Subscriber> subscribers, Object item, Set<Subscriber> touched) {
+		if (subscribers == null) {
+			return;
+		}
+		for (Subscriber subscriber : subscribers) {
+			if (offer(subscriber, item)) {
+				touched.add(subscriber);
+			}
+		}
+	}
+
+	private boolean offer(Subscriber subscriber, Object item) {
+		if (subscriber.closed.get()) {
+			return false;
+		}
+		if (subscriber.buffer.offer(item)) {
+			return true;
+		}
+		log.debug("Closing the contract events stream of client {}: buffer of {} events full",
+				subscriber.clientId, this.bufferSize);
+		evict(subscriber);
+		return false;
+	}
+
+	// flux fermé par le serveur : complété par la vidange, seule à écrire sur l'émetteur (complete attend l'envoi en cours)
+	private void evict(Subscriber subscriber) {
+		this.evictions.increment();
+		unsubscribe(subscriber);
+		subscriber.buffer.clear();
+		scheduleDrain(subscriber);
+	}
+
+	private void ended(Subscriber subscriber) {
+		subscriber.completed.set(true);
+		unsubscribe(subscriber);
+	}
+
+	private void scheduleDrain(Subscriber subscriber) {
+		if (subscriber.draining.compareAndSet(false, true)) {
+			try {
+				this.senders.execute(() -> drain(subscriber));
+			} catch (RejectedExecutionException e) {
+				// arrêt en cours
+				subscriber.draining.set(false);
+			}
+		}
+	}
+
+	private void drain(Subscriber subscriber) {
+		try {
+			Object item;
+			while (!subscriber.closed.get() && (item = subscriber.buffer.poll()) != null) {
+				if (item == END) {
+					unsubscribe(subscriber);
+				} else if (item == HEARTBEAT) {
+					send(subscriber, SseEmitter.event().comment("heartbeat"));
+				} else {
+					ChangeDto change = (ChangeDto) item;
+					send(subscriber, SseEmitter.event()
+							.id(String.valueOf(change.getSequence()))
+							.name(change.getType().name())
+							.data(change, MediaType.APPLICATION_JSON));
+				}
+			}
+			if (subscriber.closed.get() && subscriber.completed.compareAndSet(false, true)) {
+				subscriber.emitter.complete();
+			}
+		} catch (IOException | IllegalStateException e) {
+			// client parti (ou flux déjà terminé)
+			unsubscribe(subscriber);
+			if (subscriber.completed.compareAndSet(false, true)) {
+				subscriber.emitter.completeWithError(e);
+			}
+		} finally {
+			subscriber.draining.set(false);
+		}
+		// éléments arrivés, ou fermeture demandée, pendant la fin du drain
+		if (subscriber.closed.get() ? !subscriber.completed.get() : !subscriber.buffer.isEmpty()) {
+			scheduleDrain(subscriber);
+		}
+	}
+
+	private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+		this.sending.put(subscriber, System.nanoTime());
+		try {
+			subscriber.emitter.send(event);
+		} finally {
+			this.sending.remove(subscriber);
+		}
+	}
+
+	private void unsubscribe(Subscriber subscriber) {
+		if (!subscriber.closed.compareAndSet(false, true)) {
+			return;
+		}
+		if (subscriber.clientId == null) {
+			this.allClientsSubscribers.remove(subscriber);
+		} else {
+			this.subscribersByClient.computeIfPresent(subscriber.clientId, (id, subscribers) -> {
+				subscribers.remove(subscriber);
+				return subscribers.isEmpty() ? null : subscribers;
+			});
+		}
+		this.subscriberCount.decrementAndGet();
+	}
+
+	private static final class Subscriber {
+
+		private final Long clientId;
+		private final SseEmitter emitter;
+		private final BlockingQueue<Object> buffer;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		Subscriber(Long clientId, SseEmitter emitter, int bufferSize) {
+			this.clientId = clientId;
+			this.emitter = emitter;
+			this.buffer = new ArrayBlockingQueue<>(bufferSize);
+		}
+	}
+}
@@ -1,25 +1,60 @@
 package com.vaudoise.api.clientscontracts.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import io.micrometer.core.annotation.Timed;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
 import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.model.ChangeFeedEntry;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
 import com.vaudoise.api.clientscontracts.model.Client;
 import com.vaudoise.api.clientscontracts.model.Contract;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+
 @Service
+@Timed("service.method")
 public class ContractService {
+	// contrats chargés puis mis à jour par lot (persistence context vidé entre deux lots)
+	private static final int BULK_CHUNK_SIZE = 1000;
+
 	private final ContractRepository contractRepository;
 	private final ClientRepository clientRepository;
+	private final ClientContractTotalService contractTotalService;
+	private final ChangeFeedService changeFeedService;
+	private final OptimisticRetry optimisticRetry;
+	private final EntityManager entityManager;
 	
-	public ContractService(ContractRepository contractRepo, ClientRepository clientRepo) {
+	public ContractService(ContractRepository contractRepo, ClientRepository clientRepo,
+			ClientContractTotalService contractTotalService, ChangeFeedService changeFeedService,
+			OptimisticRetry optimisticRetry, EntityManager entityManager) {
 		this.clientRepository = clientRepo;
 		this.contractRepository = contractRepo;
+		this.contractTotalService = contractTotalService;
+		this.changeFeedService = changeFeedService;
+		this.optimisticRetry = optimisticRetry;
+		this.entityManager = entityManager;
 	}
 	
+	@Transactional
 	public Contract createContract(long idClient, Contract contract) {
 		// recuperer le client depuis le repo
 		Client client = this.clientRepository.findById(idClient).orElseThrow(()-> new RuntimeException("Client not found"));
@@ -28,14 +63,114 @@ public class ContractService {
 			contract.setStartDate(LocalDate.now());
 		}
 		contract.setClient(client);
-		return this.contractRepository.save(contract);
+		Contract savedContract = this.contractRepository.save(contract);
+		this.contractTotalService.contractCreated(savedContract);
+		this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_CREATED, savedContract));
+		return savedContract;
 	}
 	
+	// sans précondition : rejouée sur le contrat relu si une écriture concurrente l'a devancée
+	// (le delta ajouté au total du client part ainsi toujours du coût réellement remplacé)
 	public Contract updateCost(long idContract, double updatedCost) {
+		return this.optimisticRetry.retrying(() -> changeCost(idContract, updatedCost, null));
+	}
+	
+	/**
+	 * Conditional cost update (If-Match): throws an
+	 * {@link OptimisticLockingFailureException}, without retrying, when the
+	 * contract is no longer at {@code expectedVersion}. A {@code null} version
+	 * makes it unconditional.
+	 */
+	public Contract updateCost(long idContract, double updatedCost, Long expectedVersion) {
+		if (expectedVersion == null) {
+			return updateCost(idContract, updatedCost);
+		}
+		return this.optimisticRetry.once(() -> changeCost(idContract, updatedCost, expectedVersion));
+	}
+	
+	private Contract changeCost(long idContract, double updatedCost, Long expectedVersion) {
 		Contract contract = this.contractRepository.findById(idContract).orElseThrow(()-> new RuntimeException("Contract Not found"));
+		if (expectedVersion != null && !expectedVersion.equals(contract.getVersion())) {
+			throw new ObjectOptimisticLockingFailureException(Contract.class, idContract);
+		}
+		Double previousCost = contract.getCostAmount();
 		contract.setCostAmount(updatedCost);
 		contract.setLastUpdateDate(LocalDateTime.now());
-		return this.contractRepository.save(contract);
+		// UPDATE ... where version = ? envoyé tout de suite : un conflit est levé (et traduit) par le repository
+		Contract savedContract = this.contractRepository.saveAndFlush(contract);
+		this.contractTotalService.costChanged(savedContract, previousCost);
+		this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_COST_UPDATED, savedContract));
+		return savedContract;
+	}
+	
+	/**
+	 * Applies a list of new costs in one transaction. Contracts are loaded by
+	 * chunks of ids and their UPDATEs are sent as JDBC batches; the active
+	 * totals get one update per client. If the same contract appears twice the
+	 * last cost wins. Unknown ids roll the whole list back. A contract updated
+	 * concurrently replays the whole list on fresh rows.
+	 * Returns the number of updated contracts.
+	 */
+	public int updateCosts(List<CostUpdate> updates) {
+		return this.optimisticRetry.retrying(() -> changeCosts(updates));
+	}
+	
+	private int changeCosts(List<CostUpdate> updates) {
+		Map<Long, Double> costById = new LinkedHashMap<>();
+		for (CostUpdate update : updates) {
+			if (update.getContractId() == null || update.getCost() == null) {
+				throw new IllegalArgumentException("contractId and cost are required");
+			}
+			costById.put(update.getContractId(), update.getCost());
+		}
+
+		List<Long> ids = new ArrayList<>(costById.keySet());
+		Map<Long, BigDecimal> deltaByClient = new HashMap<>();
+		LocalDateTime now = LocalDateTime.now();
+		int updated = 0;
+		for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size()));
+			List<Contract> contracts = this.contractRepository.findAllById(chunk);
+			if (contracts.size() != chunk.size()) {
+				throw new EntityNotFoundException("Contracts not found: " + missingIds(chunk, contracts));
+			}
+			for (Contract contract : contracts) {
+				Double previousCost = contract.getCostAmount();
+				contract.setCostAmount(costById.get(contract.getId()));
+				contract.setLastUpdateDate(now);
+				deltaByClient.merge(contract.getClient().getId(),
+						this.contractTotalService.costDelta(contract, previousCost), BigDecimal::add);
+				this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_COST_UPDATED, contract));
+			}
+			updated += contracts.size();
+			this.entityManager.flush();
+			this.entityManager.clear();
+		}
+		this.contractTotalService.costsChanged(deltaByClient);
+		return updated;
+	}
+	
+	// révision tarifaire : "+3 %" sur tous les contrats actifs d'un client, en un seul UPDATE
+	// les nouveaux coûts ne sont connus que de la base : relus (mêmes contrats actifs) pour le flux de modifications
+	@Transactional
+	public int applyCostRate(long idClient, BigDecimal percent) {
+		if (!this.clientRepository.existsById(idClient)) {
+			throw new EntityNotFoundException("Client not found");
+		}
+		BigDecimal factor = BigDecimal.ONE.add(percent.movePointLeft(2));
+		LocalDate today = LocalDate.now();
+		int updated = this.contractRepository.scaleActiveCosts(idClient, factor, today, LocalDateTime.now());
+		this.contractTotalService.contractsRepriced(idClient);
+		for (ContractSummaryDto contract : this.contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(idClient, today)) {
+			this.changeFeedService.record(ChangeFeedEntry.contract(ChangeType.CONTRACT_COST_UPDATED, contract.getClientId(),
+					contract.getId(), contract.getStartDate(), contract.getEndDate(), contract.getCostAmount()));
+		}
+		return updated;
+	}
+	
+	private static List<Long> missingIds(List<Long> ids, List<Contract> found) {
+		Set<Long> foundIds = found.stream().map(Contract::getId).collect(Collectors.toSet());
+		return ids.stream().filter(id -> !foundIds.contains(id)).collect(Collectors.toList());
 	}
 
 }
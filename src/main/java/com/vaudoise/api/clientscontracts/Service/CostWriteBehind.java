@@ -0,0 +1,294 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Write-behind queue for bursts of cost updates on the same contracts.
+ * <p>
+ * {@link #submit} keeps the last cost per contract id: an update replacing a
+ * pending one is coalesced and never reaches the database. A background
+ * thread writes the pending costs through {@link ContractService#updateCosts}
+ * (one transaction, JDBC batches) at most {@code flush-interval} after they
+ * were queued, or as soon as {@code batch-size} contracts are pending. A
+ * batch that fails (unknown contract, conflict still there after the
+ * retries) is written again one contract at a time, so only the faulty
+ * updates fail.
+ * <p>
+ * With {@code ack=durable} the future returned by {@link #submit} completes
+ * once the cost is committed; with {@code ack=enqueue} it is already complete
+ * and failures are only logged and counted. Beyond {@code max-pending}
+ * contracts, or while stopping, {@link #submit} refuses the update and the
+ * caller writes it synchronously.
+ * <p>
+ * A synchronous write of a cost must call {@link #supersede} first: the
+ * queued cost of the contract is dropped, and a batch already being written
+ * with it is waited for, so the queue never overwrites a newer value.
+ */
+@Service
+@ConditionalOnProperty(name = "contracts.write-behind.enabled", havingValue = "true", matchIfMissing = true)
+public class CostWriteBehind implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(CostWriteBehind.class);
+
+	// attente maximale, par une écriture synchrone, du lot en cours d'écriture du même contrat
+	private static final Duration BATCH_WAIT = Duration.ofSeconds(30);
+
+	public enum AckMode {
+		// réponse après le commit du lot contenant la mise à jour
+		DURABLE,
+		// réponse dès la mise en file
+		ENQUEUE
+	}
+
+	private final ContractService contractService;
+	private final AckMode ackMode;
+	private final Duration flushInterval;
+	private final int batchSize;
+	private final int maxPending;
+	private final ConcurrentHashMap<Long, PendingCost> pending = new ConcurrentHashMap<>();
+	// retirées de la file, en cours d'écriture
+	private final ConcurrentHashMap<Long, PendingCost> writing = new ConcurrentHashMap<>();
+	private final Timer flushes;
+	private final Timer delays;
+	private final DistributionSummary batches;
+	private final Counter coalesced;
+	private final Counter failures;
+
+	private volatile boolean running;
+	private Thread flusher;
+
+	public CostWriteBehind(ContractService contractService, MeterRegistry meterRegistry,
+			@Value("${contracts.write-behind.ack:durable}") AckMode ackMode,
+			@Value("${contracts.write-behind.flush-interval:PT0.05S}") Duration flushInterval,
+			@Value("${contracts.write-behind.batch-size:500}") int batchSize,
+			@Value("${contracts.write-behind.max-pending:10000}") int maxPending) {
+		this.contractService = contractService;
+		this.ackMode = ackMode;
+		this.flushInterval = flushInterval;
+		this.batchSize = batchSize;
+		this.maxPending = maxPending;
+		Gauge.builder("contracts.write-behind.pending", this.pending, ConcurrentHashMap::size)
+				.description("Contracts with a cost update waiting to be written")
+				.register(meterRegistry);
+		this.flushes = Timer.builder("contracts.write-behind.flush")
+				.description("Writes of one batch of pending cost updates, retries included")
+				.register(meterRegistry);
+		this.delays = Timer.builder("contracts.write-behind.delay")
+				.description("Time from queuing a cost update to its commit")
+				.register(meterRegistry);
+		this.batches = DistributionSummary.builder("contracts.write-behind.batch")
+				.description("Contracts written by one flush")
+				.baseUnit("contracts")
+				.register(meterRegistry);
+		this.coalesced = Counter.builder("contracts.write-behind.coalesced")
+				.description("Cost updates replaced by a later one before being written")
+				.register(meterRegistry);
+		this.failures = Counter.builder("contracts.write-behind.failures")
+				.description("Queued cost updates that could not be written")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Queues a new cost for a contract. Empty when the queue is full or
+	 * stopping: the caller must then write the cost itself.
+	 */
+	public Optional<CompletableFuture<Void>> submit(long contractId, double cost) {
+		if (!this.running || (this.pending.size() >= this.maxPending && !this.pending.containsKey(contractId))) {
+			return Optional.empty();
+		}
+		PendingCost queued = this.pending.compute(contractId, (id, previous) -> {
+			if (previous == null) {
+				return new PendingCost(cost);
+			}
+			// même contrat déjà en attente : seule la dernière valeur sera écrite
+			previous.cost = cost;
+			this.coalesced.increment();
+			return previous;
+		});
+		if (this.pending.size() >= this.batchSize) {
+			LockSupport.unpark(this.flusher);
+		}
+		return Optional.of(this.ackMode == AckMode.ENQUEUE ? CompletableFuture.completedFuture(null) : queued.durable);
+	}
+
+	/**
+	 * Called before a synchronous write of the contract's cost, which is newer
+	 * than anything queued: the pending cost is dropped and its update fails
+	 * with an {@link OptimisticLockingFailureException}, as for a concurrent
+	 * modification. If a batch is writing the contract, waits until it is
+	 * committed, so that the synchronous write comes after it.
+	 */
+	public void supersede(long contractId) {
+		PendingCost queued = this.pending.remove(contractId);
+		if (queued != null) {
+			this.coalesced.increment();
+			queued.durable.completeExceptionally(new OptimisticLockingFailureException(
+					"Cost update of contract " + contractId + " superseded by a synchronous update"));
+		}
+		// lu après la file : le thread d'écriture marque une entrée en cours d'écriture avant de la retirer
+		PendingCost inBatch = this.writing.get(contractId);
+		if (inBatch == null) {
+			return;
+		}
+		try {
+			inBatch.durable.get(BATCH_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			// lot en échec (rien n'a été écrit) ou anormalement long : l'écriture synchrone ne l'attend plus
+			log.debug("Synchronous cost update of contract {} not waiting for its batch: {}", contractId, e.toString());
+		}
+	}
+
+	public AckMode getAckMode() {
+		return this.ackMode;
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+		this.flusher = new Thread(this::run, "cost-write-behind");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		LockSupport.unpark(this.flusher);
+		try {
+			this.flusher.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	// arrêté après le serveur HTTP (plus de nouvelles mises à jour) et avant le journal des mutations,
+	// qui reçoit ainsi les dernières écritures
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 3072;
+	}
+
+	private void run() {
+		while (this.running) {
+			LockSupport.parkNanos(this, this.flushInterval.toNanos());
+			flushPending();
+		}
+		// mises à jour arrivées pendant l'arrêt
+		flushPending();
+	}
+
+	private void flushPending() {
+		while (!this.pending.isEmpty()) {
+			List<Long> ids = new ArrayList<>(this.batchSize);
+			List<PendingCost> costs = new ArrayList<>(this.batchSize);
+			for (Long id : this.pending.keySet()) {
+				// retiré atomiquement : une mise à jour suivante du même contrat repart dans un nouveau lot
+				// marqué en cours d'écriture avant d'être retiré : supersede le trouve toujours dans l'une des deux maps
+				PendingCost cost = this.pending.get(id);
+				if (cost == null) {
+					continue;
+				}
+				this.writing.put(id, cost);
+				if (this.pending.remove(id, cost)) {
+					ids.add(id);
+					costs.add(cost);
+				} else {
+					// remplacée par supersede entre-temps
+					this.writing.remove(id, cost);
+				}
+				if (ids.size() == this.batchSize) {
+					break;
+				}
+			}
+			try {
+				flush(ids, costs);
+			} catch (RuntimeException e) {
+				// ne doit pas arriver (échecs déjà rattachés aux mises à jour) : le thread d'écriture continue
+				log.error("Cost write-behind flush failed", e);
+			} finally {
+				for (int i = 0; i < ids.size(); i++) {
+					this.writing.remove(ids.get(i), costs.get(i));
+				}
+			}
+		}
+	}
+
+	private void flush(List<Long> ids, List<PendingCost> costs) {
+		long start = System.nanoTime();
+		List<CostUpdate> updates = new ArrayList<>(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			updates.add(new CostUpdate(ids.get(i), costs.get(i).cost));
+		}
+		try {
+			this.contractService.updateCosts(updates);
+			costs.forEach(cost -> written(cost, null));
+		} catch (RuntimeException batchFailure) {
+			// tout le lot a été annulé : chaque contrat est réécrit seul, seules les mises à jour fautives échouent
+			log.debug("Cost write-behind batch of {} failed, writing one by one: {}", ids.size(), batchFailure.getMessage());
+			for (int i = 0; i < ids.size(); i++) {
+				try {
+					this.contractService.updateCost(ids.get(i), updates.get(i).getCost());
+					written(costs.get(i), null);
+				} catch (RuntimeException e) {
+					log.warn("Queued cost update of contract {} not written: {}", ids.get(i), e.getMessage());
+					this.failures.increment();
+					written(costs.get(i), e);
+				}
+			}
+		}
+		this.flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		this.batches.record(ids.size());
+	}
+
+	private void written(PendingCost cost, RuntimeException failure) {
+		this.delays.record(System.nanoTime() - cost.queuedAt, TimeUnit.NANOSECONDS);
+		if (failure == null) {
+			cost.durable.complete(null);
+		} else {
+			cost.durable.completeExceptionally(failure);
+		}
+	}
+
+	// dernière valeur en attente pour un contrat ; modifiée sous le verrou de la map (compute / remove)
+	private static final class PendingCost {
+		private final long queuedAt = System.nanoTime();
+		private final CompletableFuture<Void> durable = new CompletableFuture<>();
+		private volatile double cost;
+
+		PendingCost(double cost) {
+			this.cost = cost;
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+// le curseur d'un consommateur du flux de modifications désigne des entrées purgées (ou inconnues) :
+// le consommateur doit repartir d'une lecture complète
+public class CursorExpiredException extends RuntimeException {
+
+	public CursorExpiredException(long cursor) {
+		super("Cursor " + cursor + " is no longer in the change feed, a full resync is needed");
+	}
+}
@@ -0,0 +1,134 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.temporal.Temporal;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import io.micrometer.core.annotation.Timed;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Company;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes whole tables as newline-delimited JSON (one object per line) while
+ * they are read. Rows come from a JDBC cursor and are written with Jackson's
+ * streaming generator; the persistence context is cleared every
+ * {@link #CLEAR_EVERY} rows, so memory does not grow with the table size.
+ */
+@Service
+@Timed("service.method")
+public class ExportService {
+
+	static final int CLEAR_EVERY = 1000;
+
+	private final ContractRepository contractRepository;
+	private final ClientRepository clientRepository;
+	private final EntityManager entityManager;
+	private final ObjectMapper objectMapper;
+
+	public ExportService(ContractRepository contractRepo, ClientRepository clientRepo, EntityManager entityManager,
+			ObjectMapper objectMapper) {
+		this.contractRepository = contractRepo;
+		this.clientRepository = clientRepo;
+		this.entityManager = entityManager;
+		this.objectMapper = objectMapper;
+	}
+
+	// renvoie le nombre de contrats écrits
+	@Transactional(readOnly = true)
+	public long exportContracts(OutputStream out) {
+		try (Stream<Contract> contracts = this.contractRepository.streamAll()) {
+			return write(contracts, out, this::writeContract);
+		}
+	}
+
+	// renvoie le nombre de clients écrits (sans leurs contrats, exportés à part avec leur clientId)
+	@Transactional(readOnly = true)
+	public long exportClients(OutputStream out) {
+		try (Stream<Client> clients = this.clientRepository.streamAll()) {
+			return write(clients, out, this::writeClient);
+		}
+	}
+
+	private interface RowWriter<T> {
+		void write(JsonGenerator generator, T row) throws IOException;
+	}
+
+	private <T> long write(Stream<T> rows, OutputStream out, RowWriter<T> rowWriter) {
+		long count = 0;
+		try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+			Iterator<T> iterator = rows.iterator();
+			while (iterator.hasNext()) {
+				rowWriter.write(generator, iterator.next());
+				generator.writeRaw('\n');
+				if (++count % CLEAR_EVERY == 0) {
+					generator.flush();
+					this.entityManager.clear();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return count;
+	}
+
+	private void writeContract(JsonGenerator generator, Contract contract) throws IOException {
+		generator.writeStartObject();
+		writeNumber(generator, "id", contract.getId());
+		writeNumber(generator, "clientId", contract.getClient().getId());
+		writeTemporal(generator, "startDate", contract.getStartDate());
+		writeTemporal(generator, "endDate", contract.getEndDate());
+		if (contract.getCostAmount() == null) {
+			generator.writeNullField("costAmount");
+		} else {
+			generator.writeNumberField("costAmount", contract.getCostAmount());
+		}
+		writeTemporal(generator, "lastUpdateDate", contract.getLastUpdateDate());
+		generator.writeEndObject();
+	}
+
+	private void writeClient(JsonGenerator generator, Client client) throws IOException {
+		generator.writeStartObject();
+		writeNumber(generator, "id", client.getId());
+		generator.writeStringField("name", client.getName());
+		generator.writeStringField("phone", client.getPhone());
+		generator.writeStringField("email", client.getEmail());
+		if (client instanceof Person person) {
+			generator.writeStringField("clientType", "PERSON");
+			writeTemporal(generator, "birthdate", person.getBirthDate());
+		} else if (client instanceof Company company) {
+			generator.writeStringField("clientType", "COMPANY");
+			generator.writeStringField("companyIdentifier", company.getCompanyIdentifier());
+		}
+		generator.writeEndObject();
+	}
+
+	private static void writeNumber(JsonGenerator generator, String field, Long value) throws IOException {
+		if (value == null) {
+			generator.writeNullField(field);
+		} else {
+			generator.writeNumberField(field, value);
+		}
+	}
+
+	// dates au format ISO 8601, comme le reste de l'API
+	private static void writeTemporal(JsonGenerator generator, String field, Temporal value) throws IOException {
+		generator.writeStringField(field, value == null ? null : value.toString());
+	}
+}
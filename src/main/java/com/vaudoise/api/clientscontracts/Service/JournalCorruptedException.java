@@ -0,0 +1,11 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.nio.file.Path;
+
+// enregistrement du journal des mutations illisible, ou qui ne suit pas la chaîne d'empreintes : journal altéré
+public class JournalCorruptedException extends RuntimeException {
+
+	public JournalCorruptedException(Path segment, long offset, String reason) {
+		super("Journal segment " + segment.getFileName() + " is corrupted at offset " + offset + ": " + reason);
+	}
+}
@@ -0,0 +1,436 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+
+/**
+ * Append-only file log of contract mutations: one fixed-size binary record
+ * per change, in segment files named after the sequence number of their first
+ * record and rolled over at {@code segmentSize}. Each record stores the
+ * SHA-256 of the previous record's hash and of its own fields, so altering,
+ * removing or reordering a record breaks the chain of every record after it;
+ * {@link #replay} checks the chain and throws {@link JournalCorruptedException}.
+ * <p>
+ * Appends go through a {@link FileChannel} and only become durable, and
+ * visible to {@link #replay}, at the next {@link #sync}: appending a whole
+ * batch before syncing costs a single fsync. On opening, records left
+ * incomplete by a crash at the end of the last segment (a partial record, or
+ * invalid records up to the end) are truncated; an invalid record followed by
+ * valid ones is not a crash but an alteration, and opening fails with
+ * {@link JournalCorruptedException}. Appends and syncs must come from one
+ * thread; replays can run from any thread.
+ * <p>
+ * Record layout (96 bytes, big-endian):
+ * <pre>
+ *  0  int      magic "VJRN"
+ *  4  byte     format version
+ *  5  byte     change type: 1 contract created, 2 cost updated, 3 contract closed
+ *  6  short    reserved
+ *  8  long     change feed sequence number
+ * 16  long     client id
+ * 24  long     contract id
+ * 32  double   cost amount (NaN when unknown)
+ * 40  int      start date, epoch day (Integer.MIN_VALUE when none)
+ * 44  int      end date, epoch day (Integer.MIN_VALUE when none)
+ * 48  long     change date-time, microseconds since 1970-01-01T00:00 (local time)
+ * 56  byte[32] SHA-256 of the previous record hash (zeros for the first record) and bytes 0 to 55
+ * 88  int      reserved
+ * 92  int      CRC32C of bytes 0 to 91
+ * </pre>
+ */
+public class JournalLog implements Closeable {
+
+	public static final int RECORD_SIZE = 96;
+
+	private static final Logger log = LoggerFactory.getLogger(JournalLog.class);
+
+	private static final int MAGIC = 0x564A524E;
+	private static final byte VERSION = 1;
+	private static final int HASH_OFFSET = 56;
+	private static final int HASH_LENGTH = 32;
+	private static final int CRC_OFFSET = 92;
+	private static final byte[] GENESIS = new byte[HASH_LENGTH];
+	private static final int NO_DATE = Integer.MIN_VALUE;
+	private static final long NO_DATE_TIME = Long.MIN_VALUE;
+	// code d'un type = sa position + 1 : ajouter les nouveaux types à la fin
+	private static final List<ChangeType> TYPES = List.of(ChangeType.CONTRACT_CREATED,
+			ChangeType.CONTRACT_COST_UPDATED, ChangeType.CONTRACT_CLOSED);
+	private static final String SUFFIX = ".journal";
+	private static final int BUFFERED_RECORDS = 1024;
+
+	private final Path directory;
+	private final long segmentSize;
+
+	// état de l'écrivain
+	private final MessageDigest digest = sha256();
+	private final CRC32C crc = new CRC32C();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * BUFFERED_RECORDS);
+	private FileChannel active;
+	private Path activePath;
+	private long activeSize;
+	private boolean newSegment;
+	private byte[] headHash = GENESIS;
+	private long lastSequence;
+
+	// fin de la partie synchronisée sur disque, seule lue par les relectures
+	private volatile Position durable;
+
+	public JournalLog(Path directory, long segmentSize) throws IOException {
+		if (segmentSize < RECORD_SIZE) {
+			throw new IllegalArgumentException("Segment size must hold at least one record of " + RECORD_SIZE + " bytes");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+		Files.createDirectories(directory);
+		recover();
+	}
+
+	/**
+	 * Sequence number of the last appended record, 0 when the log is empty.
+	 */
+	public long lastSequence() {
+		return this.lastSequence;
+	}
+
+	/**
+	 * Writes the contract changes whose sequence number is above
+	 * {@link #lastSequence()}, in the given order. They are durable after the
+	 * next {@link #sync}.
+	 */
+	public void append(List<ChangeDto> changes) throws IOException {
+		for (ChangeDto change : changes) {
+			if (!TYPES.contains(change.getType())) {
+				throw new IllegalArgumentException("Only contract changes are journaled, not " + change.getType());
+			}
+			if (change.getSequence() <= this.lastSequence) {
+				continue;
+			}
+			if (this.active == null || this.activeSize == this.segmentSize) {
+				startSegment(change.getSequence());
+			}
+			if (!this.buffer.hasRemaining()) {
+				writeBuffer();
+			}
+			encode(change);
+			this.activeSize += RECORD_SIZE;
+			this.lastSequence = change.getSequence();
+		}
+		writeBuffer();
+	}
+
+	/**
+	 * Forces the appended records to disk and makes them visible to replays.
+	 */
+	public void sync() throws IOException {
+		if (this.active == null) {
+			return;
+		}
+		// fdatasync : le contenu et la taille du fichier, sans les dates de modification
+		this.active.force(false);
+		if (this.newSegment) {
+			syncDirectory();
+			this.newSegment = false;
+		}
+		this.durable = new Position(this.activePath, this.activeSize);
+	}
+
+	/**
+	 * Reads the durable records whose sequence number is above
+	 * {@code afterSequence}, oldest first, checking the hash chain from the
+	 * start of their segment. Returns the sequence number of the last record
+	 * read, or {@code afterSequence} when there is none.
+	 */
+	public long replay(long afterSequence, Consumer<ChangeDto> consumer) throws IOException {
+		Position end = this.durable;
+		if (end == null) {
+			return afterSequence;
+		}
+		List<Path> segments = segments();
+		int last = segments.indexOf(end.segment());
+		// dernier segment commençant au plus tard au numéro qui suit afterSequence
+		int first = 0;
+		for (int i = 1; i <= last; i++) {
+			if (firstSequence(segments.get(i)) <= afterSequence + 1) {
+				first = i;
+			}
+		}
+
+		byte[] previous = first == 0 ? GENESIS : lastHash(segments.get(first - 1));
+		long lastRead = afterSequence;
+		MessageDigest chain = sha256();
+		CRC32C checksum = new CRC32C();
+		ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * BUFFERED_RECORDS);
+		for (int i = first; i <= last; i++) {
+			Path segment = segments.get(i);
+			try (FileChannel channel = FileChannel.open(segment, READ)) {
+				long size = i == last ? end.size() : channel.size();
+				if (size % RECORD_SIZE != 0) {
+					throw new JournalCorruptedException(segment, size - size % RECORD_SIZE, "incomplete record");
+				}
+				for (long offset = 0; offset < size; offset += chunk.limit()) {
+					chunk.clear().limit((int) Math.min(chunk.capacity(), size - offset));
+					readFully(channel, chunk, offset);
+					for (int p = 0; p < chunk.limit(); p += RECORD_SIZE) {
+						check(chunk, p, checksum, segment, offset + p);
+						chain.update(previous);
+						chain.update(chunk.duplicate().position(p).limit(p + HASH_OFFSET));
+						byte[] hash = chain.digest();
+						if (!Arrays.equals(hash, 0, HASH_LENGTH, chunk.array(), p + HASH_OFFSET, p + HASH_OFFSET + HASH_LENGTH)) {
+							throw new JournalCorruptedException(segment, offset + p, "hash chain broken");
+						}
+						previous = hash;
+						long sequence = chunk.getLong(p + 8);
+						if (sequence > afterSequence) {
+							consumer.accept(decode(chunk, p));
+							lastRead = sequence;
+						}
+					}
+				}
+			}
+		}
+		return lastRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.active != null) {
+			sync();
+			this.active.close();
+			this.active = null;
+		}
+	}
+
+	// reprise après un arrêt brutal : seule la fin du dernier segment, écrite après la dernière synchronisation,
+	// peut être incomplète ; elle est tronquée, aucun segment n'est supprimé
+	private void recover() throws IOException {
+		List<Path> segments = segments();
+		if (segments.isEmpty()) {
+			return;
+		}
+		Path segment = segments.get(segments.size() - 1);
+		FileChannel channel = FileChannel.open(segment, READ, WRITE);
+		long valid;
+		try {
+			valid = validLength(segment, channel);
+			if (valid < channel.size()) {
+				log.warn("Truncating {} bytes of incomplete records at the end of journal segment {}",
+						channel.size() - valid, segment.getFileName());
+				channel.truncate(valid);
+				channel.force(false);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		if (valid > 0) {
+			setHead(lastRecord(segment));
+			this.durable = new Position(segment, valid);
+		} else if (segments.size() > 1) {
+			// segment ouvert sans enregistrement durable : la chaîne reprend au dernier du segment précédent
+			Path previous = segments.get(segments.size() - 2);
+			setHead(lastRecord(previous));
+			this.durable = new Position(previous, Files.size(previous));
+			this.newSegment = true;
+		}
+		this.active = channel.position(valid);
+		this.activePath = segment;
+		this.activeSize = valid;
+	}
+
+	private void setHead(ByteBuffer record) {
+		this.headHash = Arrays.copyOfRange(record.array(), HASH_OFFSET, HASH_OFFSET + HASH_LENGTH);
+		this.lastSequence = record.getLong(8);
+	}
+
+	// longueur des enregistrements valides avant une fin déchirée (enregistrement partiel ou invalides jusqu'au bout) ;
+	// un enregistrement invalide suivi d'un valide n'est pas un arrêt brutal mais une altération
+	private long validLength(Path segment, FileChannel channel) throws IOException {
+		long size = channel.size();
+		ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * BUFFERED_RECORDS);
+		CRC32C checksum = new CRC32C();
+		long firstInvalid = -1;
+		long offset = 0;
+		while (offset + RECORD_SIZE <= size) {
+			chunk.clear().limit((int) Math.min(chunk.capacity(), (size - offset) / RECORD_SIZE * RECORD_SIZE));
+			readFully(channel, chunk, offset);
+			for (int p = 0; p < chunk.limit(); p += RECORD_SIZE) {
+				boolean intact = true;
+				try {
+					check(chunk, p, checksum, segment, offset);
+				} catch (JournalCorruptedException e) {
+					intact = false;
+				}
+				if (!intact && firstInvalid < 0) {
+					firstInvalid = offset;
+				} else if (intact && firstInvalid >= 0) {
+					throw new JournalCorruptedException(segment, firstInvalid, "invalid record followed by valid records");
+				}
+				offset += RECORD_SIZE;
+			}
+		}
+		return firstInvalid >= 0 ? firstInvalid : offset;
+	}
+
+	private void startSegment(long firstSequence) throws IOException {
+		if (this.active != null) {
+			writeBuffer();
+			sync();
+			this.active.close();
+		}
+		this.activePath = this.directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+		this.active = FileChannel.open(this.activePath, CREATE_NEW, WRITE);
+		this.activeSize = 0;
+		this.newSegment = true;
+	}
+
+	private void encode(ChangeDto change) {
+		int start = this.buffer.position();
+		this.buffer.putInt(MAGIC)
+				.put(VERSION)
+				.put((byte) (TYPES.indexOf(change.getType()) + 1))
+				.putShort((short) 0)
+				.putLong(change.getSequence())
+				.putLong(change.getClientId() == null ? 0 : change.getClientId())
+				.putLong(change.getContractId() == null ? 0 : change.getContractId())
+				.putDouble(change.getCostAmount() == null ? Double.NaN : change.getCostAmount())
+				.putInt(epochDay(change.getStartDate()))
+				.putInt(epochDay(change.getEndDate()))
+				.putLong(epochMicros(change.getChangedAt()));
+		this.digest.update(this.headHash);
+		this.digest.update(this.buffer.duplicate().position(start).limit(start + HASH_OFFSET));
+		this.headHash = this.digest.digest();
+		this.buffer.put(this.headHash).putInt(0);
+		this.crc.reset();
+		this.crc.update(this.buffer.duplicate().position(start).limit(start + CRC_OFFSET));
+		this.buffer.putInt((int) this.crc.getValue());
+	}
+
+	private static ChangeDto decode(ByteBuffer chunk, int p) {
+		double cost = chunk.getDouble(p + 32);
+		return new ChangeDto(chunk.getLong(p + 8), TYPES.get(chunk.get(p + 5) - 1),
+				chunk.getLong(p + 16), chunk.getLong(p + 24),
+				date(chunk.getInt(p + 40)), date(chunk.getInt(p + 44)),
+				Double.isNaN(cost) ? null : cost, dateTime(chunk.getLong(p + 48)));
+	}
+
+	private static void check(ByteBuffer chunk, int p, CRC32C checksum, Path segment, long offset) {
+		checksum.reset();
+		checksum.update(chunk.duplicate().position(p).limit(p + CRC_OFFSET));
+		if (chunk.getInt(p) != MAGIC || chunk.get(p + 4) != VERSION || (int) checksum.getValue() != chunk.getInt(p + CRC_OFFSET)) {
+			throw new JournalCorruptedException(segment, offset, "invalid record");
+		}
+		int type = chunk.get(p + 5);
+		if (type < 1 || type > TYPES.size()) {
+			throw new JournalCorruptedException(segment, offset, "unknown change type " + type);
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.active.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	// entrée du nouveau segment dans le répertoire (impossible sous Windows, où le fichier suffit)
+	private void syncDirectory() {
+		try (FileChannel dir = FileChannel.open(this.directory, READ)) {
+			dir.force(true);
+		} catch (IOException e) {
+			log.debug("Journal directory {} cannot be synced: {}", this.directory, e.getMessage());
+		}
+	}
+
+	private byte[] lastHash(Path segment) throws IOException {
+		return Arrays.copyOfRange(lastRecord(segment).array(), HASH_OFFSET, HASH_OFFSET + HASH_LENGTH);
+	}
+
+	private static ByteBuffer lastRecord(Path segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, READ)) {
+			ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+			long offset = channel.size() - RECORD_SIZE;
+			if (offset < 0) {
+				throw new JournalCorruptedException(segment, 0, "empty segment");
+			}
+			readFully(channel, record, offset);
+			check(record, 0, new CRC32C(), segment, offset);
+			return record;
+		}
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			// noms de longueur fixe : l'ordre alphabétique est celui des numéros
+			return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+		}
+	}
+
+	private static long firstSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Journal segment ends before offset " + (position + buffer.limit()));
+			}
+		}
+		buffer.flip();
+	}
+
+	private static int epochDay(LocalDate date) {
+		return date == null ? NO_DATE : (int) date.toEpochDay();
+	}
+
+	private static LocalDate date(int epochDay) {
+		return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+	}
+
+	private static long epochMicros(LocalDateTime dateTime) {
+		return dateTime == null ? NO_DATE_TIME
+				: dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+	}
+
+	private static LocalDateTime dateTime(long epochMicros) {
+		return epochMicros == NO_DATE_TIME ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000),
+				(int) Math.floorMod(epochMicros, 1_000_000) * 1_000, ZoneOffset.UTC);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record Position(Path segment, long size) {
+	}
+}
@@ -0,0 +1,238 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.vaudoise.api.clientscontracts.Repository.ChangeFeedRepository;
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Audit journal of contract creations, cost changes and closings, kept in an
+ * append-only {@link JournalLog} under {@code contracts.journal.directory}.
+ * <p>
+ * The journal is a consumer of the change feed: a background thread reads the
+ * entries committed after the last journaled one, appends the contract
+ * changes and syncs them with a single fsync (group commit), then waits for
+ * the next commit. Write endpoints only pay for the change feed entry they
+ * already insert; the journal lags their commit by one fsync, and after a
+ * crash or a restart it catches up from the change feed. Changes purged from
+ * the feed before being journaled (journal disabled for longer than the feed
+ * retention) are missing, which is logged.
+ * <p>
+ * {@link #replay} reads the journal back without touching the database, to
+ * rebuild contract state or feed downstream systems.
+ */
+@Service
+@ConditionalOnProperty(name = "contracts.journal.enabled", havingValue = "true", matchIfMissing = true)
+public class MutationJournal implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(MutationJournal.class);
+
+	private static final Set<ChangeType> JOURNALED = EnumSet.of(ChangeType.CONTRACT_CREATED,
+			ChangeType.CONTRACT_COST_UPDATED, ChangeType.CONTRACT_CLOSED);
+
+	private final ChangeFeedRepository feedRepository;
+	private final ChangeFeedService changeFeedService;
+	private final Path directory;
+	private final long segmentSize;
+	private final Duration pollInterval;
+	private final int batchSize;
+	private final Timer syncs;
+	private final DistributionSummary batches;
+	private final Counter records;
+
+	private volatile JournalLog journalLog;
+	private volatile boolean running;
+	private volatile CompletableFuture<Void> waiting = CompletableFuture.completedFuture(null);
+	private Thread writer;
+	// numéro du flux jusqu'auquel toutes les modifications de contrats sont sur disque
+	private volatile long durableSequence;
+
+	public MutationJournal(ChangeFeedRepository feedRepository, ChangeFeedService changeFeedService,
+			MeterRegistry meterRegistry,
+			@Value("${contracts.journal.directory:./data/journal}") Path directory,
+			@Value("${contracts.journal.segment-size:64MB}") DataSize segmentSize,
+			@Value("${contracts.journal.poll-interval:PT1S}") Duration pollInterval,
+			@Value("${contracts.journal.batch-size:1000}") int batchSize) {
+		this.feedRepository = feedRepository;
+		this.changeFeedService = changeFeedService;
+		this.directory = directory;
+		this.segmentSize = segmentSize.toBytes();
+		this.pollInterval = pollInterval;
+		this.batchSize = batchSize;
+		this.syncs = Timer.builder("contracts.journal.sync")
+				.description("Group commits of the mutation journal: write and fsync of the pending changes")
+				.register(meterRegistry);
+		this.batches = DistributionSummary.builder("contracts.journal.batch")
+				.description("Contract changes made durable by one group commit")
+				.baseUnit("records")
+				.register(meterRegistry);
+		this.records = Counter.builder("contracts.journal.records")
+				.description("Contract changes appended to the mutation journal")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Replays the journaled contract changes with a sequence number above
+	 * {@code afterSequence}, oldest first. Returns the sequence number to
+	 * resume from. Throws {@link JournalCorruptedException} when a record was
+	 * altered.
+	 */
+	public long replay(long afterSequence, Consumer<ChangeDto> consumer) {
+		JournalLog current = this.journalLog;
+		if (current == null) {
+			throw new IllegalStateException("The mutation journal is not started");
+		}
+		try {
+			return current.replay(afterSequence, consumer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Change feed sequence number up to which every contract change is in the
+	 * journal and synced to disk.
+	 */
+	public long getDurableSequence() {
+		return this.durableSequence;
+	}
+
+	@Override
+	public void start() {
+		this.journalLog = open();
+		this.durableSequence = this.journalLog.lastSequence();
+		this.running = true;
+		this.writer = new Thread(this::run, "mutation-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		this.waiting.complete(null);
+		try {
+			this.writer.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			this.journalLog.close();
+		} catch (IOException e) {
+			log.error("Mutation journal not closed cleanly", e);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	// démarré avant et arrêté après le serveur HTTP : les derniers commits sont journalisés avant la fermeture
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	private void run() {
+		long cursor = this.durableSequence;
+		while (this.running) {
+			try {
+				cursor = journalCommitted(cursor);
+				this.waiting = this.changeFeedService.awaitChangesAfter(cursor, this.pollInterval);
+			} catch (IOException | RuntimeException e) {
+				log.error("Mutation journal append failed after sequence {}, retrying", cursor, e);
+				cursor = reopen(cursor);
+				this.waiting = new CompletableFuture<Void>()
+						.completeOnTimeout(null, this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+			}
+			if (this.running) {
+				this.waiting.join();
+			}
+		}
+		// commits arrivés pendant l'arrêt
+		try {
+			journalCommitted(cursor);
+		} catch (IOException | RuntimeException e) {
+			log.error("Mutation journal append failed after sequence {} while stopping", cursor, e);
+		}
+	}
+
+	// toutes les entrées commitées depuis le curseur, un seul fsync pour l'ensemble
+	private long journalCommitted(long cursor) throws IOException {
+		long start = System.nanoTime();
+		int appended = 0;
+		List<ChangeDto> page;
+		do {
+			page = this.feedRepository.findAfter(cursor, Limit.of(this.batchSize));
+			if (page.isEmpty()) {
+				break;
+			}
+			if (page.get(0).getSequence() != cursor + 1) {
+				log.warn("Change feed entries {} to {} were purged before being journaled",
+						cursor + 1, page.get(0).getSequence() - 1);
+			}
+			List<ChangeDto> contractChanges = page.stream().filter(change -> JOURNALED.contains(change.getType())).toList();
+			this.journalLog.append(contractChanges);
+			appended += contractChanges.size();
+			cursor = page.get(page.size() - 1).getSequence();
+		} while (page.size() == this.batchSize);
+
+		if (appended > 0) {
+			this.journalLog.sync();
+			this.syncs.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			this.batches.record(appended);
+			this.records.increment(appended);
+		}
+		this.durableSequence = cursor;
+		return cursor;
+	}
+
+	// après une erreur d'écriture : relecture de l'état réel des fichiers (fin incomplète tronquée)
+	private long reopen(long cursor) {
+		try {
+			this.journalLog.close();
+		} catch (IOException | RuntimeException e) {
+			log.debug("Failed journal not closed cleanly", e);
+		}
+		try {
+			this.journalLog = open();
+			return this.journalLog.lastSequence();
+		} catch (UncheckedIOException e) {
+			log.error("Mutation journal cannot be reopened", e);
+			return cursor;
+		}
+	}
+
+	private JournalLog open() {
+		try {
+			return new JournalLog(this.directory, this.segmentSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Mutation journal cannot be opened in " + this.directory, e);
+		}
+	}
+}
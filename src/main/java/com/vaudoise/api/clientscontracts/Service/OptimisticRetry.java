@@ -0,0 +1,102 @@
+package com.vaudoise.api.clientscontracts.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+
+/**
+ * Runs a write in its own transaction and replays it when a concurrent
+ * transaction changed one of its {@code @Version}ed entities first, or held
+ * the rows it updates beyond the lock timeout. Only for
+ * writes that do not depend on what they overwrite (setting a cost, replacing
+ * the client details): replayed on fresh rows, they give the same result as
+ * if they had simply come second.
+ * <p>
+ * A write called inside an existing transaction joins it and is not
+ * retried: the conflict rolls the whole caller back. Conflicts reach the
+ * caller as {@link OptimisticLockingFailureException} (lock timeouts as
+ * {@link PessimisticLockingFailureException}), whether Hibernate detected
+ * them through a repository, an {@code EntityManager.flush} or the commit.
+ */
+@Component
+public class OptimisticRetry {
+
+	private static final Logger log = LoggerFactory.getLogger(OptimisticRetry.class);
+
+	private final TransactionTemplate transactionTemplate;
+	private final int maxAttempts;
+	private final Counter retries;
+
+	public OptimisticRetry(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+			@Value("${api.optimistic-lock.max-attempts:5}") int maxAttempts) {
+		this.transactionTemplate = transactionTemplate;
+		this.maxAttempts = maxAttempts;
+		this.retries = Counter.builder("service.optimistic.retries")
+				.description("Writes replayed after a version conflict or a lock timeout")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Runs {@code write} in a transaction, up to {@code api.optimistic-lock.max-attempts}
+	 * times while it conflicts with concurrent writes.
+	 */
+	public <T> T retrying(Supplier<T> write) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			return once(write);
+		}
+		for (int attempt = 1;; attempt++) {
+			try {
+				return once(write);
+			} catch (ConcurrencyFailureException e) {
+				if (attempt >= this.maxAttempts) {
+					throw e;
+				}
+				this.retries.increment();
+				log.debug("Concurrent write conflict, attempt {} of {}: {}", attempt, this.maxAttempts, e.getMessage());
+				backOff(attempt);
+			}
+		}
+	}
+
+	/**
+	 * Runs {@code write} in a transaction, once: a conflict is thrown to the
+	 * caller (conditional updates, where it means the precondition failed).
+	 */
+	public <T> T once(Supplier<T> write) {
+		try {
+			return this.transactionTemplate.execute(status -> write.get());
+		} catch (OptimisticLockException e) {
+			// levée par un flush direct de l'EntityManager (synchronisation avant commit), non traduite par Spring
+			throw new ObjectOptimisticLockingFailureException(e.getMessage(), e);
+		} catch (PessimisticLockException | LockTimeoutException e) {
+			throw new PessimisticLockingFailureException(e.getMessage(), e);
+		}
+	}
+
+	// attente aléatoire croissante : les écritures en conflit ne se retrouvent pas de nouveau ensemble
+	private static void backOff(int attempt) {
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 6)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while retrying a conflicting write", e);
+		}
+	}
+}
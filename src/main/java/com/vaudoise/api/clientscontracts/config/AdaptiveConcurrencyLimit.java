@@ -0,0 +1,112 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows the latency of the requests it admits
+ * (gradient algorithm, as in Netflix concurrency-limits).
+ * <p>
+ * Two moving averages of the response time are kept: a short one (last few
+ * requests) and a long one, the reference of a healthy system. While the
+ * short average stays within {@code TOLERANCE} times the reference the limit
+ * grows by about its square root (room for a small queue); when requests get
+ * slower the limit shrinks in proportion, down to half per step. Changes are
+ * smoothed, and the limit only grows when it is actually reached: an idle
+ * system keeps its limit. After a long slowdown the reference is pulled back
+ * down quickly once latency recovers, so the limit does not stay low.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+	// latence courte acceptée jusqu'à 1,5 fois la référence avant de réduire la limite
+	private static final double TOLERANCE = 1.5;
+	private static final double SMOOTHING = 0.2;
+	private static final int SHORT_WINDOW = 10;
+	private static final int LONG_WINDOW = 600;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile int limit;
+
+	// modifiés sous le verrou de l'instance (onSample)
+	private double estimatedLimit;
+	private double shortRtt;
+	private double longRtt;
+	private long samples;
+
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Expected 1 <= min <= initial <= max limit, got " + minLimit + " <= "
+					+ initialLimit + " <= " + maxLimit);
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.estimatedLimit = initialLimit;
+		this.limit = initialLimit;
+	}
+
+	/**
+	 * Takes a slot if fewer requests than the limit are in flight. Every
+	 * successful call must be followed by one {@code release}.
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			int current = this.inFlight.get();
+			if (current >= this.limit) {
+				return false;
+			}
+			if (this.inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Frees a slot and feeds the response time of the request into the limit.
+	 */
+	public void release(long rttNanos) {
+		int inFlightBefore = this.inFlight.getAndDecrement();
+		onSample(rttNanos, inFlightBefore);
+	}
+
+	/**
+	 * Frees a slot without a measure (request continued asynchronously: its
+	 * duration says nothing about the load).
+	 */
+	public void release() {
+		this.inFlight.decrementAndGet();
+	}
+
+	public int getLimit() {
+		return this.limit;
+	}
+
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	private synchronized void onSample(long rttNanos, int inFlightBefore) {
+		double rtt = Math.max(1, rttNanos);
+		this.samples++;
+		if (this.samples == 1) {
+			this.shortRtt = rtt;
+			this.longRtt = rtt;
+			return;
+		}
+		this.shortRtt += (rtt - this.shortRtt) / Math.min(this.samples, SHORT_WINDOW);
+		this.longRtt += (this.shortRtt - this.longRtt) / Math.min(this.samples, LONG_WINDOW);
+		// latence revenue bien en dessous de la référence : la référence redescend vite
+		if (this.longRtt / this.shortRtt > 2) {
+			this.longRtt *= 0.95;
+		}
+		// limite loin d'être atteinte : la latence ne dit rien de la limite
+		if (inFlightBefore < this.estimatedLimit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * this.longRtt / this.shortRtt));
+		double target = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+		double smoothed = this.estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING;
+		this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, smoothed));
+		this.limit = (int) this.estimatedLimit;
+	}
+}
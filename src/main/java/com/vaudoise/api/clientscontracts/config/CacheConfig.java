@@ -0,0 +1,31 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * In-process caches. Evictions made inside a transaction are deferred until
+ * it commits, so a concurrent read cannot put the pre-commit row back.
+ * The cache interceptor runs outside the transaction one : a hit does not
+ * open a transaction nor borrow a connection.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+	public static final String CLIENTS = "clients";
+
+	@Bean
+	public CacheManager cacheManager(
+			@Value("${clients.cache.spec:maximumSize=10000,expireAfterWrite=5m}") String clientsSpec) {
+		CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(CLIENTS);
+		caffeineCacheManager.setCacheSpecification(clientsSpec + ",recordStats");
+		return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+	}
+}
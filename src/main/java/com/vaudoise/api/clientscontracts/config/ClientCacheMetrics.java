@@ -0,0 +1,48 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Hit/miss statistics of the client cache, logged periodically.
+ */
+@Component
+public class ClientCacheMetrics {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientCacheMetrics.class);
+
+	private final Cache<Object, Object> cache;
+
+	public ClientCacheMetrics(CacheManager cacheManager) {
+		org.springframework.cache.Cache clients = cacheManager.getCache(CacheConfig.CLIENTS);
+		if (clients instanceof TransactionAwareCacheDecorator decorator) {
+			clients = decorator.getTargetCache();
+		}
+		this.cache = ((CaffeineCache) clients).getNativeCache();
+	}
+
+	public CacheStats stats() {
+		return this.cache.stats();
+	}
+
+	public long size() {
+		return this.cache.estimatedSize();
+	}
+
+	@Scheduled(fixedDelayString = "${clients.cache.stats-log-interval:PT5M}",
+			initialDelayString = "${clients.cache.stats-log-interval:PT5M}")
+	public void logStats() {
+		CacheStats stats = stats();
+		log.info("Client cache: {} hits, {} misses (hit rate {}), {} evictions, {} entries",
+				stats.hitCount(), stats.missCount(), String.format("%.3f", stats.hitRate()),
+				stats.evictionCount(), size());
+	}
+}
@@ -0,0 +1,128 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Makes {@code server.compression.min-response-size} effective. Tomcat decides
+ * whether to compress when the response is committed, from its Content-Length.
+ * The message converters flush the stream once the body is written, which
+ * commits the response before its length is known, so every response ended up
+ * compressed, even a few bytes. Flushes are ignored until the threshold has
+ * been written: a small body stays in Tomcat's buffer and gets its
+ * Content-Length when the response is closed, a large one is streamed as before.
+ * Server-Sent Events are never held back: each event is flushed as it is sent.
+ */
+@Component
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+	private final long threshold;
+
+	public CompressionThresholdFilter(@Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize) {
+		this.threshold = minResponseSize.toBytes();
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		chain.doFilter(request, new ThresholdResponse(response, this.threshold));
+	}
+
+	private static final class ThresholdResponse extends HttpServletResponseWrapper {
+
+		private final long threshold;
+		private ThresholdOutputStream outputStream;
+
+		ThresholdResponse(HttpServletResponse response, long threshold) {
+			super(response);
+			this.threshold = threshold;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (this.outputStream == null) {
+				this.outputStream = new ThresholdOutputStream(this, super.getOutputStream(), this.threshold);
+			}
+			return this.outputStream;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (this.outputStream == null || this.outputStream.pastThreshold() || isEventStream(this)) {
+				super.flushBuffer();
+			}
+		}
+	}
+
+	private static boolean isEventStream(HttpServletResponse response) {
+		String contentType = response.getContentType();
+		return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+	}
+
+	private static final class ThresholdOutputStream extends ServletOutputStream {
+
+		private final HttpServletResponse response;
+		private final ServletOutputStream delegate;
+		private final long threshold;
+		private long written;
+
+		ThresholdOutputStream(HttpServletResponse response, ServletOutputStream delegate, long threshold) {
+			this.response = response;
+			this.delegate = delegate;
+			this.threshold = threshold;
+		}
+
+		boolean pastThreshold() {
+			return this.written >= this.threshold;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.delegate.write(b);
+			this.written++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.delegate.write(b, off, len);
+			this.written += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (pastThreshold() || isEventStream(this.response)) {
+				this.delegate.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.delegate.close();
+		}
+
+		@Override
+		public boolean isReady() {
+			return this.delegate.isReady();
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			this.delegate.setWriteListener(writeListener);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Load shedding in front of the controllers. Requests to {@code /api/**}
+ * take a slot in an {@link AdaptiveConcurrencyLimit}, one for reads (GET,
+ * HEAD) and one for writes, so a burst of slow writes does not starve the
+ * reads and the other way round. Over the limit the request is answered at
+ * once with {@code 503} and {@code Retry-After}, before any database work:
+ * the threads left keep serving the admitted requests at normal latency
+ * instead of all of them queuing on the connection pool.
+ * <p>
+ * A request that continues asynchronously (long-polling, events, deferred
+ * writes) frees its slot when its thread does, without a latency sample.
+ * Runs after the HTTP metrics filter, so rejections show up in
+ * {@code http.server.requests} with status 503, and after the
+ * {@link IdempotencyFilter}, so replayed duplicates take no slot.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+@ConditionalOnProperty(name = "api.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+	private static final byte[] REJECTED_BODY = "{\"message\":\"Too many concurrent requests, retry later\"}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private final AdaptiveConcurrencyLimit readLimit;
+	private final AdaptiveConcurrencyLimit writeLimit;
+	private final String retryAfter;
+	private final Counter readRejections;
+	private final Counter writeRejections;
+
+	public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+			@Value("${api.concurrency-limit.read.initial-limit:20}") int readInitialLimit,
+			@Value("${api.concurrency-limit.read.max-limit:200}") int readMaxLimit,
+			@Value("${api.concurrency-limit.write.initial-limit:10}") int writeInitialLimit,
+			@Value("${api.concurrency-limit.write.max-limit:100}") int writeMaxLimit,
+			@Value("${api.concurrency-limit.min-limit:2}") int minLimit,
+			@Value("${api.concurrency-limit.retry-after:PT1S}") Duration retryAfter) {
+		this.readLimit = new AdaptiveConcurrencyLimit(readInitialLimit, minLimit, readMaxLimit);
+		this.writeLimit = new AdaptiveConcurrencyLimit(writeInitialLimit, minLimit, writeMaxLimit);
+		this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+		this.readRejections = register(meterRegistry, "read", this.readLimit);
+		this.writeRejections = register(meterRegistry, "write", this.writeLimit);
+	}
+
+	private static Counter register(MeterRegistry meterRegistry, String type, AdaptiveConcurrencyLimit limit) {
+		Gauge.builder("api.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+				.description("Current adaptive limit of concurrent requests")
+				.tag("type", type)
+				.register(meterRegistry);
+		Gauge.builder("api.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+				.description("Requests being handled under the concurrency limit")
+				.tag("type", type)
+				.register(meterRegistry);
+		return Counter.builder("api.concurrency.rejected")
+				.description("Requests answered 503 because the concurrency limit was reached")
+				.tag("type", type)
+				.register(meterRegistry);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !request.getRequestURI().startsWith("/api/");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+		AdaptiveConcurrencyLimit limit = read ? this.readLimit : this.writeLimit;
+		if (!limit.tryAcquire()) {
+			(read ? this.readRejections : this.writeRejections).increment();
+			reject(response);
+			return;
+		}
+		long start = System.nanoTime();
+		boolean measured = false;
+		try {
+			chain.doFilter(request, response);
+			measured = !request.isAsyncStarted();
+		} finally {
+			if (measured) {
+				limit.release(System.nanoTime() - start);
+			} else {
+				// requête asynchrone ou en erreur : créneau rendu sans mesure
+				limit.release();
+			}
+		}
+	}
+
+	private void reject(HttpServletResponse response) throws IOException {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, this.retryAfter);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(REJECTED_BODY.length);
+		response.getOutputStream().write(REJECTED_BODY);
+	}
+}
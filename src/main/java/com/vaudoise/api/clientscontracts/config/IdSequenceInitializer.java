@@ -0,0 +1,66 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Moves the id sequences past the ids already stored. With
+ * {@code ddl-auto=update}, a database whose rows were numbered before the
+ * sequences existed (identity columns) gets sequences starting at 1, and the
+ * first inserts would reuse existing ids. Runs once at startup, before the
+ * journal replay and before the HTTP server accepts requests; a sequence
+ * already ahead of its table is left alone.
+ */
+@Component
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+
+	private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+	// allocationSize des entités : Hibernate (optimiseur pooled) donne les ids de next - 49 à next
+	static final int ALLOCATION_SIZE = 50;
+
+	// séquence -> table dont elle numérote les lignes
+	private static final Map<String, String> SEQUENCES = Map.of(
+			"client_seq", "client",
+			"contract_seq", "contract",
+			"change_feed_seq", "change_feed");
+
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+
+	public IdSequenceInitializer(EntityManager entityManager, TransactionTemplate transactionTemplate) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		this.transactionTemplate.executeWithoutResult(status -> SEQUENCES.forEach(this::align));
+	}
+
+	private void align(String sequence, String table) {
+		long maxId = ((Number) this.entityManager
+				.createNativeQuery("select coalesce(max(id), 0) from " + table)
+				.getSingleResult()).longValue();
+		long next = ((Number) this.entityManager
+				.createNativeQuery("select base_value from information_schema.sequences where sequence_name = ?1")
+				.setParameter(1, sequence.toUpperCase())
+				.getSingleResult()).longValue();
+		// le prochain bloc commencerait sur un id existant
+		if (maxId > 0 && next - ALLOCATION_SIZE < maxId) {
+			long restart = maxId + ALLOCATION_SIZE;
+			log.warn("Sequence {} restarted at {}: its next value {} is behind the ids of table {} (max {})",
+					sequence, restart, next, table, maxId);
+			// DDL : pas de paramètre lié, valeur numérique calculée ici
+			this.entityManager.createNativeQuery("alter sequence " + sequence + " restart with " + restart)
+					.executeUpdate();
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore.Claim;
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore.Entry;
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore.StoredResponse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * {@code Idempotency-Key} support for the creation endpoints
+ * ({@code api.idempotency.paths}, POST only): a client retrying a request
+ * with the same key gets the response of the first one, replayed from an
+ * {@link IdempotencyStore}, instead of creating a second client or contract.
+ * <p>
+ * The key is bound to the method, path and body of its first request; reused
+ * for a different request it is refused with {@code 422}. A duplicate arriving
+ * while the first request is still running waits for its response (at most
+ * {@code api.idempotency.wait}, then {@code 409} with {@code Retry-After}).
+ * Responses below 500 are stored, as they would be the same on a retry; after
+ * a server error or an exception the key is released and the next request
+ * with it runs again. Requests without the header are not affected.
+ * <p>
+ * Runs before the {@link ConcurrencyLimitFilter}: a replayed or waiting
+ * duplicate takes no slot of the limit, and its wait is not taken for the
+ * latency of the API. Only the request that owns the key goes through the
+ * limit; rejected there ({@code 503}), it releases the key.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnProperty(name = "api.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+	public static final String IDEMPOTENCY_REPLAYED = "Idempotency-Replayed";
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private final IdempotencyStore store;
+	private final List<String> paths;
+	private final Duration wait;
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+	private final MeterRegistry meterRegistry;
+
+	public IdempotencyFilter(MeterRegistry meterRegistry,
+			@Value("${api.idempotency.paths:/api/clients,/api/contracts/client/*}") List<String> paths,
+			@Value("${api.idempotency.max-keys:100000}") long maxKeys,
+			@Value("${api.idempotency.ttl:PT24H}") Duration ttl,
+			@Value("${api.idempotency.lock-stripes:64}") int lockStripes,
+			@Value("${api.idempotency.wait:PT10S}") Duration wait) {
+		this.store = new IdempotencyStore(maxKeys, ttl, lockStripes);
+		this.paths = paths;
+		this.wait = wait;
+		this.meterRegistry = meterRegistry;
+		Gauge.builder("api.idempotency.keys", this.store, IdempotencyStore::size)
+				.description("Idempotency keys currently remembered")
+				.register(this.meterRegistry);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		if (request.getHeader(IDEMPOTENCY_KEY) == null || !HttpMethod.POST.matches(request.getMethod())) {
+			return true;
+		}
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return this.paths.stream().noneMatch(pattern -> this.pathMatcher.match(pattern, path));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String key = request.getHeader(IDEMPOTENCY_KEY);
+		if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			fail(response, HttpStatus.BAD_REQUEST, "Idempotency-Key must have 1 to " + MAX_KEY_LENGTH + " characters");
+			return;
+		}
+		byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+		String fingerprint = fingerprint(request, body);
+		HttpServletRequest replayable = new CachedBodyRequest(request, body);
+
+		for (;;) {
+			Claim claim = this.store.claim(key, fingerprint);
+			Entry entry = claim.entry();
+			if (!entry.getFingerprint().equals(fingerprint)) {
+				count("mismatch");
+				fail(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key already used for another request");
+				return;
+			}
+			if (claim.owner()) {
+				execute(key, entry, replayable, response, chain);
+				return;
+			}
+			StoredResponse stored;
+			try {
+				stored = entry.getResponse().get(this.wait.toMillis(), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				count("in-progress");
+				response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+				fail(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ServletException("Interrupted while waiting for the request with the same Idempotency-Key", e);
+			} catch (ExecutionException e) {
+				throw new ServletException(e.getCause());
+			}
+			if (stored != null) {
+				count("replayed");
+				replay(stored, response);
+				return;
+			}
+			// première requête abandonnée (erreur serveur) : la clé est libre, nouvelle tentative de la réserver
+		}
+	}
+
+	private void execute(String key, Entry entry, HttpServletRequest request, HttpServletResponse response,
+			FilterChain chain) throws ServletException, IOException {
+		ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+		boolean stored = false;
+		try {
+			chain.doFilter(request, captured);
+			count("executed");
+			if (captured.getStatus() < 500) {
+				this.store.complete(entry, new StoredResponse(captured.getStatus(), captured.getContentType(),
+						captured.getHeader(HttpHeaders.LOCATION), captured.getHeader(HttpHeaders.ETAG),
+						captured.getContentAsByteArray()));
+				stored = true;
+			}
+		} finally {
+			if (!stored) {
+				this.store.abandon(key, entry);
+			}
+		}
+		captured.copyBodyToResponse();
+	}
+
+	private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+		response.setStatus(stored.status());
+		if (stored.contentType() != null) {
+			response.setContentType(stored.contentType());
+		}
+		if (stored.location() != null) {
+			response.setHeader(HttpHeaders.LOCATION, stored.location());
+		}
+		if (stored.etag() != null) {
+			response.setHeader(HttpHeaders.ETAG, stored.etag());
+		}
+		response.setHeader(IDEMPOTENCY_REPLAYED, "true");
+		response.setContentLength(stored.body().length);
+		response.getOutputStream().write(stored.body());
+	}
+
+	private static void fail(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+		byte[] body = ("{\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+		response.setStatus(status.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	private void count(String outcome) {
+		this.meterRegistry.counter("api.idempotency.requests", "outcome", outcome).increment();
+	}
+
+	private static String fingerprint(HttpServletRequest request, byte[] body) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder target = new StringBuilder(request.getMethod()).append(' ').append(request.getRequestURI());
+			if (request.getQueryString() != null) {
+				target.append('?').append(request.getQueryString());
+			}
+			digest.update(target.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest.digest(body));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// corps déjà lu pour l'empreinte, relu par le contrôleur
+	private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+		private final byte[] body;
+
+		CachedBodyRequest(HttpServletRequest request, byte[] body) {
+			super(request);
+			this.body = body;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream in = new ByteArrayInputStream(this.body);
+			return new ServletInputStream() {
+
+				@Override
+				public int read() {
+					return in.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					return in.read(b, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return in.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				// tout le corps est déjà en mémoire : disponible et lu d'emblée
+				@Override
+				public void setReadListener(ReadListener listener) {
+					try {
+						if (!isFinished()) {
+							listener.onDataAvailable();
+						}
+						listener.onAllDataRead();
+					} catch (IOException e) {
+						listener.onError(e);
+					}
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			String encoding = getCharacterEncoding();
+			return new BufferedReader(new InputStreamReader(getInputStream(),
+					encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+		}
+
+		@Override
+		public int getContentLength() {
+			return this.body.length;
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			return this.body.length;
+		}
+	}
+}
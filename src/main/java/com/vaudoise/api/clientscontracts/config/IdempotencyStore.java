@@ -0,0 +1,136 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Responses of the requests sent with an {@code Idempotency-Key}, kept so that
+ * a retry of the same request gets the first response instead of running it
+ * again.
+ * <p>
+ * The store is bounded ({@code maxKeys}, least recently used keys evicted
+ * first) and a key expires {@code ttl} after its first request. Looking up a
+ * key takes no lock, so replays do not contend. Claiming a new key is done
+ * under one lock of a fixed set, chosen by the hash of the key: two requests
+ * with the same key are serialized, requests with different keys almost never
+ * wait for each other. The first request claiming a key owns it; later ones
+ * get the same {@link Entry} and wait for its response.
+ */
+public final class IdempotencyStore {
+
+	private final Cache<String, Entry> entries;
+	private final ReentrantLock[] stripes;
+
+	public IdempotencyStore(long maxKeys, Duration ttl, int lockStripes) {
+		this.entries = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterWrite(ttl)
+				.build();
+		// puissance de deux : l'index du verrou est un simple masque du hash
+		int stripes = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+		this.stripes = new ReentrantLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Entry of a key, in flight or completed, or {@code null}. Never locks.
+	 */
+	public Entry lookup(String key) {
+		return this.entries.getIfPresent(key);
+	}
+
+	/**
+	 * Returns the entry of the key, creating it if the key is new; the caller
+	 * owns a created entry and must {@link #complete} or {@link #abandon} it.
+	 */
+	public Claim claim(String key, String fingerprint) {
+		Entry existing = lookup(key);
+		if (existing != null) {
+			return new Claim(existing, false);
+		}
+		ReentrantLock lock = stripe(key);
+		lock.lock();
+		try {
+			existing = lookup(key);
+			if (existing != null) {
+				return new Claim(existing, false);
+			}
+			Entry created = new Entry(fingerprint);
+			this.entries.put(key, created);
+			return new Claim(created, true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores the response of an owned entry and wakes up the requests waiting
+	 * for it.
+	 */
+	public void complete(Entry entry, StoredResponse response) {
+		entry.response.complete(response);
+	}
+
+	/**
+	 * Forgets an owned entry whose request must be allowed to run again (server
+	 * error, exception). The waiting requests get {@code null} and claim the
+	 * key again.
+	 */
+	public void abandon(String key, Entry entry) {
+		ReentrantLock lock = stripe(key);
+		lock.lock();
+		try {
+			this.entries.asMap().remove(key, entry);
+		} finally {
+			lock.unlock();
+		}
+		entry.response.complete(null);
+	}
+
+	public long size() {
+		return this.entries.estimatedSize();
+	}
+
+	private ReentrantLock stripe(String key) {
+		int hash = key.hashCode();
+		return this.stripes[(hash ^ (hash >>> 16)) & (this.stripes.length - 1)];
+	}
+
+	public record Claim(Entry entry, boolean owner) {
+	}
+
+	/**
+	 * A key: the fingerprint of its first request (method, path and body) and
+	 * the response, once known.
+	 */
+	public static final class Entry {
+
+		private final String fingerprint;
+		private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+		Entry(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		public String getFingerprint() {
+			return this.fingerprint;
+		}
+
+		/**
+		 * Completes with the stored response, or with {@code null} if the first
+		 * request was abandoned.
+		 */
+		public CompletableFuture<StoredResponse> getResponse() {
+			return this.response;
+		}
+	}
+
+	public record StoredResponse(int status, String contentType, String location, String etag, byte[] body) {
+	}
+}
@@ -0,0 +1,32 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary alternatives to JSON, chosen with the {@code Accept} header (and the
+ * {@code Content-Type} of request bodies): CBOR ({@code application/cbor}) and
+ * Smile ({@code application/x-jackson-smile}). Both converters are built from
+ * the application's Jackson configuration ({@code spring.jackson.*}, modules),
+ * so they carry exactly what the JSON responses carry. They replace the
+ * default converters of the same type, which keeps JSON the default format.
+ */
+@Configuration
+public class MessageFormatConfig {
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
+}
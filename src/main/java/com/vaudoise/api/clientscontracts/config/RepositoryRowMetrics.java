@@ -0,0 +1,97 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts the rows returned by each repository method (counter
+ * {@code repository.rows}, tags {@code repository} and {@code method}).
+ * Collections, slices and optionals are counted when the method returns,
+ * streams when they are closed. Other results (saved entities, counts of
+ * updated rows) are not rows read and are ignored.
+ * <p>
+ * Execution times are recorded by Spring Boot itself
+ * ({@code spring.data.repository.invocations}). Disabled with
+ * {@code management.metrics.repository-rows.enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "management.metrics.repository-rows.enabled", matchIfMissing = true)
+public class RepositoryRowMetrics implements BeanPostProcessor {
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	// un compteur par méthode, pour ne pas reconstruire ses tags à chaque appel
+	private final Map<Method, Counter> counters = new ConcurrentHashMap<>();
+
+	public RepositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+			factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+					(proxyFactory, repository) -> proxyFactory.addAdvice(
+							new RowCountingInterceptor(repository.getRepositoryInterface()))));
+		}
+		return bean;
+	}
+
+	private Counter counter(Class<?> repository, Method method) {
+		return this.counters.computeIfAbsent(method, key -> Counter.builder("repository.rows")
+				.description("Rows returned by repository methods")
+				.tag("repository", repository.getSimpleName())
+				.tag("method", method.getName())
+				.register(this.meterRegistry.getObject()));
+	}
+
+	private final class RowCountingInterceptor implements MethodInterceptor {
+
+		private final Class<?> repository;
+
+		RowCountingInterceptor(Class<?> repository) {
+			this.repository = repository;
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			Object result = invocation.proceed();
+			if (result instanceof Stream<?> stream) {
+				Counter counter = counter(this.repository, invocation.getMethod());
+				long[] rows = { 0 };
+				return stream.peek(row -> rows[0]++).onClose(() -> counter.increment(rows[0]));
+			}
+			long rows;
+			if (result instanceof Slice<?> slice) {
+				rows = slice.getNumberOfElements();
+			}
+			else if (result instanceof Collection<?> collection) {
+				rows = collection.size();
+			}
+			else if (result instanceof Optional<?> optional) {
+				rows = optional.isPresent() ? 1 : 0;
+			}
+			else {
+				return result;
+			}
+			counter(this.repository, invocation.getMethod()).increment(rows);
+			return result;
+		}
+	}
+}
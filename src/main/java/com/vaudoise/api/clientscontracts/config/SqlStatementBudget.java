@@ -0,0 +1,22 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements a handler method may run for one request,
+ * whatever the size of the data it returns. Going over it usually means a
+ * lazy association loaded row by row (N+1). Checked by
+ * {@link SqlStatementFilter}: logged as a warning, and a failure when
+ * {@code sql.statement-budget.fail-on-exceed=true} (set for the tests).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlStatementBudget {
+
+	int value();
+}
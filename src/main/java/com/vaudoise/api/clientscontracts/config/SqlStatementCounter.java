@@ -0,0 +1,102 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.util.Map;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements of the current request and the time spent
+ * executing them. Hibernate calls {@link #inspect} for every statement it
+ * prepares and the {@link ExecutionTimer} session listener around every
+ * execution; both add to the tally of the current thread, which
+ * {@link SqlStatementFilter} opens and closes around each request.
+ * Statements run outside of a request (scheduled jobs, startup) are not counted.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+	private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+
+	static Tally start() {
+		Tally tally = new Tally();
+		CURRENT.set(tally);
+		return tally;
+	}
+
+	static void stop() {
+		CURRENT.remove();
+	}
+
+	@Override
+	public String inspect(String sql) {
+		Tally tally = CURRENT.get();
+		if (tally != null) {
+			tally.statements++;
+		}
+		return sql;
+	}
+
+	@Override
+	public void customize(Map<String, Object> hibernateProperties) {
+		// un inspecteur déjà configuré (capture des requêtes dans les tests de plans) reste prioritaire
+		hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, this);
+		hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, ExecutionTimer.class.getName());
+	}
+
+	/**
+	 * Statements and SQL execution time of one request.
+	 */
+	public static final class Tally {
+
+		private int statements;
+		private long sqlNanos;
+
+		public int statements() {
+			return this.statements;
+		}
+
+		public long sqlNanos() {
+			return this.sqlNanos;
+		}
+	}
+
+	/**
+	 * Times statement and batch executions. Hibernate creates one instance per
+	 * session, and a session is used by one thread at a time.
+	 */
+	public static class ExecutionTimer implements SessionEventListener {
+
+		private long start;
+
+		@Override
+		public void jdbcExecuteStatementStart() {
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void jdbcExecuteStatementEnd() {
+			record();
+		}
+
+		@Override
+		public void jdbcExecuteBatchStart() {
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void jdbcExecuteBatchEnd() {
+			record();
+		}
+
+		private void record() {
+			Tally tally = CURRENT.get();
+			if (tally != null) {
+				tally.sqlNanos += System.nanoTime() - this.start;
+			}
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Reports the SQL statements run by each request, counted by
+ * {@link SqlStatementCounter}:
+ * <ul>
+ * <li>response headers {@code X-SQL-Statements} and {@code Server-Timing: sql;dur=<ms>},
+ * added just before the body is written;</li>
+ * <li>one log line per request ({@code DEBUG}, {@code WARN} over budget);</li>
+ * <li>metrics {@code http.server.sql.statements} and {@code http.server.sql.time} per endpoint;</li>
+ * <li>the {@link SqlStatementBudget} of the handler method, enforced when
+ * {@code sql.statement-budget.fail-on-exceed=true}.</li>
+ * </ul>
+ */
+@Component
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+	static final String STATEMENTS_HEADER = "X-SQL-Statements";
+	static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+	private static final Logger log = LoggerFactory.getLogger(SqlStatementFilter.class);
+
+	private final MeterRegistry meterRegistry;
+	private final boolean failOnExceed;
+
+	public SqlStatementFilter(MeterRegistry meterRegistry,
+			@Value("${sql.statement-budget.fail-on-exceed:false}") boolean failOnExceed) {
+		this.meterRegistry = meterRegistry;
+		this.failOnExceed = failOnExceed;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		long start = System.nanoTime();
+		SqlStatementCounter.Tally tally = SqlStatementCounter.start();
+		HeaderWritingResponse wrapped = new HeaderWritingResponse(response, tally);
+		try {
+			chain.doFilter(request, wrapped);
+		}
+		finally {
+			SqlStatementCounter.stop();
+			// réponses sans corps : les en-têtes peuvent encore être ajoutés
+			wrapped.writeHeaders();
+		}
+		report(request, response.getStatus(), tally, System.nanoTime() - start);
+	}
+
+	private void report(HttpServletRequest request, int status, SqlStatementCounter.Tally tally, long nanos) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+		SqlStatementBudget budget = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE)
+				instanceof HandlerMethod handler ? handler.getMethodAnnotation(SqlStatementBudget.class) : null;
+
+		DistributionSummary.builder("http.server.sql.statements")
+				.description("SQL statements run by a request")
+				.tag("method", request.getMethod()).tag("uri", uri)
+				.register(this.meterRegistry).record(tally.statements());
+		Timer.builder("http.server.sql.time")
+				.description("Time spent executing the SQL statements of a request")
+				.tag("method", request.getMethod()).tag("uri", uri)
+				.register(this.meterRegistry).record(tally.sqlNanos(), TimeUnit.NANOSECONDS);
+
+		boolean overBudget = budget != null && tally.statements() > budget.value();
+		if (overBudget) {
+			log.warn("sql method={} uri={} status={} statements={} budget={} sqlTimeMs={} durationMs={}",
+					request.getMethod(), uri, status, tally.statements(), budget.value(), millis(tally.sqlNanos()),
+					millis(nanos));
+			if (this.failOnExceed) {
+				throw new IllegalStateException(String.format("%s %s ran %d SQL statements, its budget is %d",
+						request.getMethod(), uri, tally.statements(), budget.value()));
+			}
+		}
+		else if (log.isDebugEnabled()) {
+			log.debug("sql method={} uri={} status={} statements={} sqlTimeMs={} durationMs={}",
+					request.getMethod(), uri, status, tally.statements(), millis(tally.sqlNanos()), millis(nanos));
+		}
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * Adds the headers when the body starts being written: the handler is done
+	 * (no open-in-view, so no statement comes later) and the response is not
+	 * committed yet.
+	 */
+	private static final class HeaderWritingResponse extends HttpServletResponseWrapper {
+
+		private final SqlStatementCounter.Tally tally;
+		private boolean written;
+
+		HeaderWritingResponse(HttpServletResponse response, SqlStatementCounter.Tally tally) {
+			super(response);
+			this.tally = tally;
+		}
+
+		void writeHeaders() {
+			if (!this.written && !isCommitted()) {
+				setHeader(STATEMENTS_HEADER, String.valueOf(this.tally.statements()));
+				setHeader(SERVER_TIMING_HEADER, "sql;dur=" + millis(this.tally.sqlNanos()));
+			}
+			this.written = true;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			writeHeaders();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			writeHeaders();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			writeHeaders();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			writeHeaders();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			writeHeaders();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			writeHeaders();
+			super.sendRedirect(location);
+		}
+	}
+}
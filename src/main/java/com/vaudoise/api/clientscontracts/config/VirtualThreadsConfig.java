@@ -0,0 +1,32 @@
+package com.vaudoise.api.clientscontracts.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Active avec le profil {@code virtual-threads}. Spring Boot ignore silencieusement
+ * {@code spring.threads.virtual.enabled} avant Java 21 : on le signale au démarrage
+ * pour ne pas mesurer le mauvais mode.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void checkRuntime() {
+		int feature = Runtime.version().feature();
+		if (feature < 21) {
+			log.warn("Profile 'virtual-threads' is active but the runtime is Java {}: requests run on platform threads",
+					feature);
+		}
+		else {
+			log.info("Requests are served on virtual threads");
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.vaudoise.api.clientscontracts.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+
+// entrée du flux de modifications telle que renvoyée par GET /api/changes (construite par la requête JPQL "select new")
+// contractId et les champs du contrat sont null pour une modification du client
+public class ChangeDto {
+    private final long sequence;
+    private final ChangeType type;
+    private final Long clientId;
+    private final Long contractId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Double costAmount;
+    private final LocalDateTime changedAt;
+
+    public ChangeDto(long sequence, ChangeType type, Long clientId, Long contractId, LocalDate startDate,
+            LocalDate endDate, Double costAmount, LocalDateTime changedAt) {
+        this.sequence = sequence;
+        this.type = type;
+        this.clientId = clientId;
+        this.contractId = contractId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.costAmount = costAmount;
+        this.changedAt = changedAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public Long getContractId() {
+        return contractId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Double getCostAmount() {
+        return costAmount;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
@@ -11,6 +11,7 @@ public class ClientDto {
     private String birthdate; // for Person
     private String companyIdentifier; // for Company
     private List<ContractDto> contracts;
+    private Long version; // en lecture seule : la mise à jour conditionnelle passe par If-Match
 
     public Long getId() {
         return id;
@@ -75,4 +76,12 @@ public class ClientDto {
     public void setContracts(List<ContractDto> contracts) {
         this.contracts = contracts;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,56 @@
+package com.vaudoise.api.clientscontracts.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// contrat tel que renvoyé par l'API : colonnes de la table seulement, le client est réduit à son id
+// (construit directement par les requêtes JPQL "select new", sans charger d'entité)
+public class ContractSummaryDto {
+    private final Long id;
+    private final Long clientId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Double costAmount;
+    private final LocalDateTime lastUpdateDate;
+    private final Long version;
+
+    public ContractSummaryDto(Long id, Long clientId, LocalDate startDate, LocalDate endDate, Double costAmount,
+            LocalDateTime lastUpdateDate, Long version) {
+        this.id = id;
+        this.clientId = clientId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.costAmount = costAmount;
+        this.lastUpdateDate = lastUpdateDate;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Double getCostAmount() {
+        return costAmount;
+    }
+
+    public LocalDateTime getLastUpdateDate() {
+        return lastUpdateDate;
+    }
+
+    // version du contrat, à renvoyer dans If-Match ("<version>") pour une mise à jour conditionnelle du coût
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,32 @@
+package com.vaudoise.api.clientscontracts.dto;
+
+// nouveau coût d'un contrat, élément du corps de PUT /api/contracts/costs
+// et réponse d'une mise à jour en écriture différée (Prefer: respond-async)
+public class CostUpdate {
+    private Long contractId;
+    private Double cost;
+
+    public CostUpdate() {
+    }
+
+    public CostUpdate(Long contractId, Double cost) {
+        this.contractId = contractId;
+        this.cost = cost;
+    }
+
+    public Long getContractId() {
+        return contractId;
+    }
+
+    public void setContractId(Long contractId) {
+        this.contractId = contractId;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public void setCost(Double cost) {
+        this.cost = cost;
+    }
+}
@@ -0,0 +1,68 @@
+package com.vaudoise.api.clientscontracts.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+    private long imported;
+    private long failed;
+    private long durationMs;
+    private long rowsPerSecond;
+    private List<RowError> errors = new ArrayList<>();
+
+    // erreur d'une ligne de l'import (numéro de ligne à partir de 1)
+    public static class RowError {
+        private long row;
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    public void addError(long row, String message) {
+        failed++;
+        errors.add(new RowError(row, message));
+    }
+
+    public void finish(long durationNanos) {
+        durationMs = durationNanos / 1_000_000;
+        rowsPerSecond = durationNanos == 0 ? 0 : (imported + failed) * 1_000_000_000L / durationNanos;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+}
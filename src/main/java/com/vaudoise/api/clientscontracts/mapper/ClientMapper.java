@@ -0,0 +1,61 @@
+package com.vaudoise.api.clientscontracts.mapper;
+
+import org.springframework.stereotype.Component;
+
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Company;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+/**
+ * Hand written Client/Person/Company <-> ClientDto mapping, replacing the
+ * reflective ModelMapper on the request path. The output is the same as the
+ * one ModelMapper produced (see ClientMapperTest) :
+ * the birthdate is only exposed entity -> DTO, and clientType is not filled.
+ */
+@Component
+public class ClientMapper {
+
+    private final ContractMapper contractMapper;
+
+    public ClientMapper(ContractMapper contractMapper) {
+        this.contractMapper = contractMapper;
+    }
+
+    public Person toPerson(ClientDto dto) {
+        Person person = new Person();
+        copyCommonFields(dto, person);
+        return person;
+    }
+
+    public Company toCompany(ClientDto dto) {
+        Company company = new Company();
+        copyCommonFields(dto, company);
+        company.setCompanyIdentifier(dto.getCompanyIdentifier());
+        return company;
+    }
+
+    public ClientDto toDto(Client client) {
+        ClientDto dto = new ClientDto();
+        dto.setId(client.getId());
+        dto.setName(client.getName());
+        dto.setPhone(client.getPhone());
+        dto.setEmail(client.getEmail());
+        if (client instanceof Person person && person.getBirthDate() != null) {
+            dto.setBirthdate(person.getBirthDate().toString());
+        } else if (client instanceof Company company) {
+            dto.setCompanyIdentifier(company.getCompanyIdentifier());
+        }
+        dto.setContracts(contractMapper.toDtos(client.getContracts()));
+        dto.setVersion(client.getVersion());
+        return dto;
+    }
+
+    private void copyCommonFields(ClientDto dto, Client client) {
+        client.setId(dto.getId());
+        client.setName(dto.getName());
+        client.setPhone(dto.getPhone());
+        client.setEmail(dto.getEmail());
+        client.setContracts(contractMapper.toEntities(dto.getContracts()));
+    }
+}
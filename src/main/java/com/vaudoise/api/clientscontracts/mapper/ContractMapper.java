@@ -0,0 +1,66 @@
+package com.vaudoise.api.clientscontracts.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+/**
+ * Hand written Contract <-> ContractDto mapping.
+ * Keeps the behaviour of the former ModelMapper bean : the cost is exposed as
+ * {@code cost} in the DTO but is not copied back to the entity.
+ */
+@Component
+public class ContractMapper {
+
+    public ContractDto toDto(Contract contract) {
+        ContractDto dto = new ContractDto();
+        dto.setId(contract.getId());
+        dto.setStartDate(contract.getStartDate());
+        dto.setEndDate(contract.getEndDate());
+        dto.setCost(contract.getCostAmount());
+        return dto;
+    }
+
+    // same shape as the ContractRepository projections, from an entity already in memory
+    public ContractSummaryDto toSummaryDto(Contract contract) {
+        return new ContractSummaryDto(contract.getId(),
+                contract.getClient() == null ? null : contract.getClient().getId(),
+                contract.getStartDate(), contract.getEndDate(), contract.getCostAmount(),
+                contract.getLastUpdateDate(), contract.getVersion());
+    }
+
+    public Contract toEntity(ContractDto dto) {
+        Contract contract = new Contract();
+        contract.setId(dto.getId());
+        contract.setStartDate(dto.getStartDate());
+        contract.setEndDate(dto.getEndDate());
+        return contract;
+    }
+
+    public List<ContractDto> toDtos(List<Contract> contracts) {
+        if (contracts == null) {
+            return null;
+        }
+        List<ContractDto> dtos = new ArrayList<>(contracts.size());
+        for (Contract contract : contracts) {
+            dtos.add(toDto(contract));
+        }
+        return dtos;
+    }
+
+    public List<Contract> toEntities(List<ContractDto> dtos) {
+        if (dtos == null) {
+            return null;
+        }
+        List<Contract> contracts = new ArrayList<>(dtos.size());
+        for (ContractDto dto : dtos) {
+            contracts.add(toEntity(dto));
+        }
+        return contracts;
+    }
+}
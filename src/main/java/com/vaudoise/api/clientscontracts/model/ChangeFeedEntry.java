@@ -0,0 +1,93 @@
+package com.vaudoise.api.clientscontracts.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+@Entity // Une modification d'un client ou d'un contrat, numérotée dans l'ordre où elle devient visible
+@Table(name = "change_feed", indexes = {
+        // Lecture à partir d'un curseur, recherche des entrées pas encore numérotées (seq null)
+        @Index(name = "idx_change_feed_seq", columnList = "seq", unique = true),
+        // Purge des entrées les plus anciennes
+        @Index(name = "idx_change_feed_changed_at", columnList = "changed_at")
+})
+public class ChangeFeedEntry {
+
+    @Id // Ordre d'insertion, tiré d'une séquence par blocs (insertions groupées en lots JDBC)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_feed_seq")
+    @SequenceGenerator(name = "change_feed_seq", sequenceName = "change_feed_seq", allocationSize = 50)
+    private Long id;
+
+    private Long seq; // Numéro attribué après le commit : croissant et sans trou, null tant qu'il ne l'est pas
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32, nullable = false)
+    private ChangeType type;
+
+    private Long clientId;
+    private Long contractId; // null pour une modification du client
+
+    // État du contrat après la modification, pour appliquer le changement sans relire le contrat
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Double costAmount;
+
+    private LocalDateTime changedAt; // Date du commit (insertion juste avant celui-ci)
+
+    protected ChangeFeedEntry() {
+    }
+
+    private ChangeFeedEntry(ChangeType type, Long clientId, Long contractId, LocalDate startDate, LocalDate endDate,
+            Double costAmount) {
+        this.type = type;
+        this.clientId = clientId;
+        this.contractId = contractId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.costAmount = costAmount;
+    }
+
+    public static ChangeFeedEntry client(ChangeType type, Long clientId) {
+        return new ChangeFeedEntry(type, clientId, null, null, null, null);
+    }
+
+    public static ChangeFeedEntry contract(ChangeType type, Contract contract) {
+        return contract(type, contract.getClient().getId(), contract.getId(), contract.getStartDate(),
+                contract.getEndDate(), contract.getCostAmount());
+    }
+
+    public static ChangeFeedEntry contract(ChangeType type, Long clientId, Long contractId, LocalDate startDate,
+            LocalDate endDate, Double costAmount) {
+        return new ChangeFeedEntry(type, clientId, contractId, startDate, endDate, costAmount);
+    }
+
+    // Insertion au moment du commit, sans numéro
+    public void recorded(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    // Numérotation une fois l'entrée commitée
+    public void number(long seq) {
+        this.seq = seq;
+    }
+
+    public Long getId() { return id; }
+    public Long getSeq() { return seq; }
+    public ChangeType getType() { return type; }
+    public Long getClientId() { return clientId; }
+    public Long getContractId() { return contractId; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public Double getCostAmount() { return costAmount; }
+    public LocalDateTime getChangedAt() { return changedAt; }
+}
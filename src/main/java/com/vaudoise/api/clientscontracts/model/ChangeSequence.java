@@ -0,0 +1,24 @@
+package com.vaudoise.api.clientscontracts.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity // Compteur du flux de modifications : une seule ligne, verrouillée le temps de numéroter les entrées commitées
+public class ChangeSequence {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id = ID;
+
+    private long lastValue; // Dernier numéro attribué
+
+    // Réserve count numéros consécutifs et renvoie le premier
+    public long allocate(int count) {
+        long first = lastValue + 1;
+        lastValue += count;
+        return first;
+    }
+
+    public long getLastValue() { return lastValue; }
+}
@@ -0,0 +1,11 @@
+package com.vaudoise.api.clientscontracts.model;
+
+// Nature d'une entrée du flux de modifications
+public enum ChangeType {
+    CLIENT_CREATED,
+    CLIENT_UPDATED,
+    CLIENT_DELETED,
+    CONTRACT_CREATED,
+    CONTRACT_COST_UPDATED,
+    CONTRACT_CLOSED
+}
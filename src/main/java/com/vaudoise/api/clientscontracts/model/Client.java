@@ -3,15 +3,22 @@ package com.vaudoise.api.clientscontracts.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OptimisticLock;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity // Indique que cette classe est une entité JPA, donc mappée à une table dans la base de données
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) 
@@ -19,18 +26,27 @@ import jakarta.persistence.OneToMany;
 // SINGLE_TABLE = toutes les sous-classes seront stockées dans une seule table, avec une colonne discriminante [personne ou company]
 @DiscriminatorColumn(name = "client_type") 
 // Nom de la colonne qui indiquera le type concret du client (par exemple: personne, company)
+@Table(indexes = @Index(name = "idx_client_type_id", columnList = "client_type, id"))
+// Index pour parcourir les clients d'un type donné par curseur (keyset), dans l'ordre des id
 public abstract class Client {
 
     @Id // Champ clé primaire
-    @GeneratedValue(strategy = GenerationType.IDENTITY) 
-    // Génération automatique de l'ID par la base de données (auto-increment)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+    @SequenceGenerator(name = "client_seq", sequenceName = "client_seq", allocationSize = 50)
+    // ID tiré d'une séquence par blocs de 50 (optimiseur pooled) : contrairement à IDENTITY,
+    // Hibernate connaît l'ID avant l'INSERT et peut regrouper les insertions en lots JDBC
     private Long id;
 
     private String name;   // Nom du client
     private String phone;  // Téléphone du client
     private String email;  // Email du client
 
+    @Version // Verrouillage optimiste : incrémentée à chaque mise à jour du client (ses contrats ont leur propre version)
+    @ColumnDefault("0") // Lignes existantes à la version 0 lors de l'ajout de la colonne
+    private Long version;
+
     @OneToMany(mappedBy = "client", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OptimisticLock(excluded = true) // Ajouter ou retirer un contrat ne change pas la version du client
     // Relation 1:N avec l'entité Contract (un client peut avoir plusieurs contrats)
     // mappedBy = "client" indique que la relation est gérée par le champ 'client' dans Contract
     // cascade ALL = toute opération sur Client (persist, merge, remove) se répercute sur ses contrats
@@ -50,6 +66,8 @@ public abstract class Client {
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
+    public Long getVersion() { return version; }
+
     public List<Contract> getContracts() { return contracts; }
     public void setContracts(List<Contract> contracts) { this.contracts = contracts; }
 }
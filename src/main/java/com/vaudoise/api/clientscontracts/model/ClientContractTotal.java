@@ -0,0 +1,54 @@
+package com.vaudoise.api.clientscontracts.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+
+@Entity // Agrégat matérialisé des contrats actifs d'un client, maintenu à chaque écriture sur ses contrats
+public class ClientContractTotal {
+
+    @Id // Même identifiant que le client (pas de génération)
+    private Long clientId;
+
+    @Column(precision = 38, scale = 2)
+    private BigDecimal activeCost = BigDecimal.ZERO; // Somme exacte des coûts des contrats actifs
+
+    private long activeCount; // Nombre de contrats actifs
+
+    private LocalDate nextExpiry; // Plus petite date de fin parmi les contrats actifs (null si aucune)
+
+    @Version // Incrémentée aussi par les UPDATE JPQL : un recalcul fait sur des valeurs dépassées échoue au lieu de les écraser
+    @ColumnDefault("0")
+    private Long version;
+
+    protected ClientContractTotal() {
+    }
+
+    public ClientContractTotal(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    // L'agrégat n'est plus exact dès qu'un contrat actif atteint sa date de fin
+    public boolean isValidOn(LocalDate day) {
+        return nextExpiry == null || day.isBefore(nextExpiry);
+    }
+
+    public Long getClientId() { return clientId; }
+
+    public BigDecimal getActiveCost() { return activeCost; }
+    public void setActiveCost(BigDecimal activeCost) { this.activeCost = activeCost; }
+
+    public long getActiveCount() { return activeCount; }
+    public void setActiveCount(long activeCount) { this.activeCount = activeCount; }
+
+    public LocalDate getNextExpiry() { return nextExpiry; }
+    public void setNextExpiry(LocalDate nextExpiry) { this.nextExpiry = nextExpiry; }
+
+    public Long getVersion() { return version; }
+}
@@ -3,20 +3,35 @@ package com.vaudoise.api.clientscontracts.model;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity // Indique que cette classe est une entité JPA, c’est-à-dire quelle sera mappée sur une table dans la base de données
+@Table(indexes = {
+        // Contrats actifs d'un client : client_id en tête, end_date permet de filtrer les deux branches (> date et IS NULL)
+        @Index(name = "idx_contract_client_end_date", columnList = "client_id, end_date"),
+        // Contrats d'un client modifiés après une date
+        @Index(name = "idx_contract_client_update_date", columnList = "client_id, update_date"),
+        // Pagination par curseur (keyset) des contrats d'un client, dans l'ordre des id
+        @Index(name = "idx_contract_client_id", columnList = "client_id, id")
+})
 public class Contract {
 
     @Id // Spécifie que ce champ est la clé primaire de l'entité
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // La valeur de l'id sera générée automatiquement par la base de données (auto-increment)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_seq") // ID tiré d'une séquence par blocs de 50 (insertions groupées en lots JDBC)
+    @SequenceGenerator(name = "contract_seq", sequenceName = "contract_seq", allocationSize = 50)
     private Long id;
 
     private LocalDate startDate; // Date de début du contrat
@@ -24,6 +39,10 @@ public class Contract {
     private Double costAmount;   // Montant du contrat
     private LocalDateTime updateDate; // Date de dernière mise à jour du contrat
 
+    @Version // Verrouillage optimiste : incrémentée à chaque mise à jour, une écriture concurrente sur une version dépassée échoue
+    @ColumnDefault("0") // Lignes existantes à la version 0 lors de l'ajout de la colonne
+    private Long version;
+
     @ManyToOne // Relation plusieurs contrats -> un client
     @JoinColumn(name = "client_id") // Colonne de jointure dans la table Contract qui fait référence à la clé primaire de Client
     private Client client;
@@ -55,6 +74,8 @@ public class Contract {
     public Double getCostAmount() { return costAmount; }
     public void setCostAmount(Double costAmount) { this.costAmount = costAmount; }
 
+    public Long getVersion() { return version; }
+
     public LocalDateTime getLastUpdateDate() { return updateDate; }
     public void setLastUpdateDate(LocalDateTime lastUpdateDate) { this.updateDate = lastUpdateDate; }
 }
@@ -0,0 +1,65 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// application complète, démarrée une seule fois pour toutes les classes qui en héritent (même configuration :
+// Spring réutilise le contexte) ; serveur HTTP réel et MockMvc, métriques Prometheus. Les réglages des tests y sont
+// réunis, les tests comparent donc leurs compteurs et numéros à leur valeur avant l'action :
+// - journal dans un répertoire temporaire, segments de 10 enregistrements
+// - rétention nulle du flux des modifications : une purge supprime toutes les entrées existantes
+// - tampon de 4 événements par abonné : un lot plus grand ferme le flux
+// - écriture différée avec une fenêtre de 300 ms et au plus 3 contrats en attente
+// - 100 essais au plus pour une écriture en conflit de version
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:application",
+        "contracts.journal.enabled=true", "contracts.journal.segment-size=960B",
+        "changes.feed.retention=PT0S",
+        "contracts.events.buffer-size=4",
+        "contracts.write-behind.flush-interval=PT0.3S", "contracts.write-behind.max-pending=3",
+        "api.optimistic-lock.max-attempts=100" })
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+abstract class ApplicationTestSupport {
+
+    protected static Path journalDirectory;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws IOException {
+        journalDirectory = Files.createTempDirectory("journal");
+        registry.add("contracts.journal.directory", journalDirectory::toString);
+    }
+
+    @Autowired
+    protected ClientService clientService;
+
+    @Autowired
+    protected ContractService contractService;
+
+    // client et ses contrats (coûts 100, 101, ...), chacun créé dans sa propre transaction
+    protected Client clientWithContracts(int contracts) {
+        Person person = new Person();
+        person.setName("Client " + contracts);
+        Client client = clientService.createClient(person);
+        for (int i = 0; i < contracts; i++) {
+            Contract contract = new Contract();
+            contract.setCostAmount(100.0 + i);
+            client.getContracts().add(contractService.createContract(client.getId(), contract));
+        }
+        return client;
+    }
+}
@@ -0,0 +1,262 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.jayway.jsonpath.JsonPath;
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.model.ChangeSequence;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// les entrées du flux ne sont écrites qu'au commit des transactions des services, puis numérotées
+// (rétention nulle : une purge supprime toutes les entrées existantes)
+class ChangeFeedTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ chaque écriture ajoute ses modifications au flux, numérotées sans trou dans l'ordre des commits")
+    void writes_areFedInCommitOrder() throws Exception {
+        long cursor = changeFeedService.lastSequence();
+
+        Client client = clientWithContract(100.0);
+        long contractId = client.getContracts().get(0).getId();
+        contractService.updateCost(contractId, 150.0);
+        contractService.applyCostRate(client.getId(), BigDecimal.TEN);
+        clientService.deleteClient(client.getId());
+
+        String body = changes(cursor, 0)
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(cursor + 6)))
+                .andReturn().getResponse().getContentAsString();
+        List<String> types = JsonPath.read(body, "$[*].type");
+        List<Number> sequences = JsonPath.read(body, "$[*].sequence");
+        assertThat(types).containsExactly("CLIENT_CREATED", "CONTRACT_CREATED", "CONTRACT_COST_UPDATED",
+                "CONTRACT_COST_UPDATED", "CONTRACT_CLOSED", "CLIENT_DELETED");
+        assertThat(sequences).extracting(Number::longValue)
+                .containsExactlyElementsOf(LongStream.rangeClosed(cursor + 1, cursor + 6).boxed().toList());
+        assertThat(((Number) JsonPath.read(body, "$[3].costAmount")).doubleValue()).isEqualTo(165.0);
+        assertThat(((Number) JsonPath.read(body, "$[3].contractId")).longValue()).isEqualTo(contractId);
+
+        // reprise depuis le curseur d'une entrée déjà lue : seules les suivantes
+        String rest = changes(cursor + 4, 0).andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<String>>read(rest, "$[*].type")).containsExactly("CONTRACT_CLOSED", "CLIENT_DELETED");
+    }
+
+    @Test
+    @DisplayName("↩️ une écriture annulée n'ajoute rien au flux et ne laisse pas de trou")
+    void rolledBackWrite_leavesNoGap() throws Exception {
+        Client client = clientWithContract(100.0);
+        long contractId = client.getContracts().get(0).getId();
+        long cursor = changeFeedService.lastSequence();
+
+        assertThatThrownBy(() -> contractService.updateCosts(List.of(
+                new CostUpdate(contractId, 200.0), new CostUpdate(-1L, 300.0))))
+                .isInstanceOf(RuntimeException.class);
+        contractService.updateCost(contractId, 250.0);
+
+        String body = changes(cursor, 0).andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<Number>>read(body, "$[*].sequence")).extracting(Number::longValue)
+                .containsExactly(cursor + 1);
+        assertThat(((Number) JsonPath.read(body, "$[0].costAmount")).doubleValue()).isEqualTo(250.0);
+    }
+
+    @Test
+    @DisplayName("⏳ long-polling : la requête attend le prochain commit")
+    void longPoll_completesOnNextCommit() throws Exception {
+        Client client = clientWithContract(100.0);
+        long cursor = changeFeedService.lastSequence();
+
+        MvcResult pending = mockMvc.perform(get("/api/changes").param("cursor", String.valueOf(cursor))
+                        .param("wait", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // toujours en attente : aucun résultat après 200 ms
+        assertThatThrownBy(() -> pending.getAsyncResult(200)).isInstanceOf(IllegalStateException.class);
+
+        contractService.updateCost(client.getContracts().get(0).getId(), 120.0);
+
+        String body = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(cursor + 1)))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<String>>read(body, "$[*].type")).containsExactly("CONTRACT_COST_UPDATED");
+    }
+
+    @Test
+    @DisplayName("⏳ long-polling sans nouveauté : liste vide à la fin de l'attente, même curseur")
+    void longPoll_returnsEmptyPageOnTimeout() throws Exception {
+        long cursor = changeFeedService.lastSequence();
+
+        String body = changes(cursor, 1)
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(cursor)))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<?>>read(body, "$")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("❌ curseur antérieur aux entrées purgées ou postérieur au flux → 410 Gone")
+    void expiredCursor_isGone() throws Exception {
+        long cursor = changeFeedService.lastSequence();
+        clientWithContract(100.0);
+        changeFeedService.purge();
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/changes").param("cursor", String.valueOf(cursor)))
+                        .andReturn()))
+                .andExpect(status().isGone());
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/changes").param("cursor", String.valueOf(cursor + 100)))
+                        .andReturn()))
+                .andExpect(status().isGone());
+
+        // le dernier numéro reste une position valide : seules les écritures suivantes sont lues
+        long last = changeFeedService.lastSequence();
+        clientWithContract(50.0);
+        String body = changes(last, 0).andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<String>>read(body, "$[*].type")).containsExactly("CLIENT_CREATED", "CONTRACT_CREATED");
+    }
+
+    @Test
+    @DisplayName("🔀 écritures concurrentes : numéros uniques et consécutifs")
+    void concurrentWrites_getConsecutiveNumbers() throws Exception {
+        List<Long> contractIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            contractIds.add(clientWithContract(100.0).getContracts().get(0).getId());
+        }
+        long cursor = changeFeedService.lastSequence();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (long contractId : contractIds) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        contractService.updateCost(contractId, 100.0 + i);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        String body = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/changes")
+                        .param("cursor", String.valueOf(cursor)).param("size", "500")).andReturn()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<Number>>read(body, "$[*].sequence")).extracting(Number::longValue)
+                .containsExactlyElementsOf(LongStream.rangeClosed(cursor + 1, cursor + 100).boxed().toList());
+    }
+
+    @Test
+    @DisplayName("🔓 compteur verrouillé → les écritures commitent sans l'attendre, numérotées une fois le verrou rendu")
+    void lockedCounter_doesNotBlockWriters() throws Exception {
+        long contractId = clientWithContract(100.0).getContracts().get(0).getId();
+        long cursor = changeFeedService.lastSequence();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                entityManager.find(ChangeSequence.class, ChangeSequence.ID, LockModeType.PESSIMISTIC_WRITE);
+                locked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // verrou toujours tenu : l'écriture ne le demande pas
+            contractService.updateCost(contractId, 130.0);
+            assertThat(holder).isNotDone();
+
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        String body = changes(cursor, 0).andReturn().getResponse().getContentAsString();
+        assertThat(JsonPath.<List<Number>>read(body, "$[*].sequence")).extracting(Number::longValue)
+                .containsExactly(cursor + 1);
+        assertThat(JsonPath.<List<String>>read(body, "$[*].type")).containsExactly("CONTRACT_COST_UPDATED");
+    }
+
+    private ResultActions changes(long cursor, int waitSeconds) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/changes").param("cursor", String.valueOf(cursor))
+                        .param("wait", String.valueOf(waitSeconds)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+
+    private Client clientWithContract(double cost) throws Exception {
+        String created = mockMvc.perform(post("/api/clients")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientType\": \"PERSON\", \"name\": \"Client du flux\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = ((Number) JsonPath.read(created, "$.id")).longValue();
+        Contract contract = new Contract();
+        contract.setCostAmount(cost);
+        Client client = new Person();
+        client.setId(id);
+        client.getContracts().add(contractService.createContract(id, contract));
+        return client;
+    }
+}
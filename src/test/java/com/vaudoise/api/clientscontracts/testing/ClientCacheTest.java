@@ -0,0 +1,161 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.OptimisticRetry;
+import com.vaudoise.api.clientscontracts.config.CacheConfig;
+import com.vaudoise.api.clientscontracts.config.ClientCacheMetrics;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// pas de transaction de test : les évictions faites dans une transaction n'ont lieu qu'au commit
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ CacheConfig.class, ClientCacheMetrics.class, ClientService.class, ClientContractTotalService.class, ChangeFeedService.class,
+        OptimisticRetry.class, SimpleMeterRegistry.class })
+class ClientCacheTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @SpyBean
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ClientCacheMetrics cacheMetrics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Person client;
+
+    @BeforeEach
+    void setUp() {
+        client = new Person();
+        client.setName("Mohamed Ikich");
+        client = (Person) clientService.createClient(client);
+        cacheManager.getCache(CacheConfig.CLIENTS).clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ la deuxième lecture est servie par le cache")
+    void clientExists_secondLookupIsAHit() {
+        long hits = cacheMetrics.stats().hitCount();
+        long misses = cacheMetrics.stats().missCount();
+
+        assertThat(clientService.clientExists(client.getId())).isTrue();
+        assertThat(clientService.clientExists(client.getId())).isTrue();
+
+        assertThat(cacheMetrics.stats().missCount()).isEqualTo(misses + 1);
+        assertThat(cacheMetrics.stats().hitCount()).isEqualTo(hits + 1);
+        verify(clientRepository, times(1)).existsById(client.getId());
+    }
+
+    @Test
+    @DisplayName("✅ la mise à jour ne change pas l'existence : l'entrée reste en cache")
+    void updateClient_keepsEntry() {
+        clientService.clientExists(client.getId());
+        Person changes = new Person();
+        changes.setName("Nouveau nom");
+
+        clientService.updateClient(client.getId(), changes);
+
+        assertThat(clientService.clientExists(client.getId())).isTrue();
+        verify(clientRepository, times(1)).existsById(client.getId());
+    }
+
+    @Test
+    @DisplayName("✅ la suppression invalide l'entrée du client")
+    void deleteClient_evicts() {
+        clientService.clientExists(client.getId());
+
+        clientService.deleteClient(client.getId());
+
+        assertThat(clientService.clientExists(client.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("⚡ lecture commencée avant une suppression → le client supprimé n'est pas remis en cache")
+    void lookupRacingDelete_doesNotResurrectClient() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // la lecture voit encore le client, puis attend que la suppression soit validée avant de rendre son résultat
+        Answer<?> repository = mockingDetails(clientRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object exists = repository.answer(invocation);
+            read.countDown();
+            resume.await(5, TimeUnit.SECONDS);
+            return exists;
+        }).when(clientRepository).existsById(client.getId());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> lookup = executor.submit(() -> clientService.clientExists(client.getId()));
+            assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Integer> delete = executor.submit(() -> clientService.deleteClient(client.getId()));
+            try {
+                // l'éviction attend la fin de la lecture en cours : pas de résultat avant qu'elle ne reprenne
+                delete.get(500, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                // attendu
+            }
+            resume.countDown();
+
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isTrue();
+            delete.get(5, TimeUnit.SECONDS);
+            assertThat(clientService.clientExists(client.getId())).isFalse();
+        }
+        finally {
+            resume.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("✅ un client absent mis en cache ne masque pas sa création")
+    void createClient_evictsCachedAbsence() {
+        long nextId = client.getId() + 1;
+        assertThat(clientService.clientExists(nextId)).isFalse();
+
+        Person created = new Person();
+        created.setName("Nouveau client");
+        created = (Person) clientService.createClient(created);
+
+        assertThat(created.getId()).isEqualTo(nextId);
+        assertThat(clientService.clientExists(nextId)).isTrue();
+    }
+}
@@ -0,0 +1,128 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientContractTotalRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.Service.OptimisticRetry;
+import com.vaudoise.api.clientscontracts.model.ClientContractTotal;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({ ClientContractTotalService.class, ClientService.class, ContractService.class, ChangeFeedService.class,
+        OptimisticRetry.class, SimpleMeterRegistry.class })
+class ClientContractTotalServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ClientContractTotalService contractTotalService;
+
+    @Autowired
+    private ClientContractTotalRepository totalRepository;
+
+    @Autowired
+    private ContractService contractService;
+
+    @Autowired
+    private ClientService clientService;
+
+    private Person client;
+
+    @BeforeEach
+    void setUp() {
+        client = new Person();
+        client.setName("Mohamed Ikich");
+        entityManager.persist(client);
+
+        Contract existing = new Contract();
+        existing.setClient(client);
+        existing.setCostAmount(100.0);
+        entityManager.persist(existing);
+        entityManager.flush();
+    }
+
+    private Contract newContract(double cost, LocalDate endDate) {
+        Contract contract = new Contract();
+        contract.setCostAmount(cost);
+        contract.setEndDate(endDate);
+        return contract;
+    }
+
+    // les mises à jour de l'agrégat sont des UPDATE JPQL : on relit depuis la base
+    private ClientContractTotal total() {
+        entityManager.flush();
+        entityManager.clear();
+        return contractTotalService.getTotal(client.getId());
+    }
+
+    @Test
+    @DisplayName("✅ l'agrégat suit les créations et changements de coût des contrats actifs")
+    void total_followsContractMutations() {
+        assertThat(total().getActiveCost()).isEqualByComparingTo("100");
+
+        Contract created = contractService.createContract(client.getId(), newContract(0.1, null));
+        contractService.createContract(client.getId(), newContract(999.0, LocalDate.now().minusDays(1)));
+        assertThat(total().getActiveCost()).isEqualByComparingTo("100.1");
+        assertThat(total().getActiveCount()).isEqualTo(2);
+
+        contractService.updateCost(created.getId(), 0.2);
+        assertThat(total().getActiveCost()).isEqualByComparingTo("100.2");
+    }
+
+    @Test
+    @DisplayName("✅ la prochaine échéance d'un contrat actif est suivie")
+    void total_tracksNextExpiry() {
+        total();
+        LocalDate endDate = LocalDate.now().plusDays(3);
+
+        contractService.createContract(client.getId(), newContract(50.0, endDate));
+
+        assertThat(total().getNextExpiry()).isEqualTo(endDate);
+        assertThat(total().isValidOn(endDate)).isFalse();
+    }
+
+    @Test
+    @DisplayName("🔁 la réconciliation corrige un agrégat divergent")
+    void reconcile_repairsDriftedRows() {
+        total();
+        assertThat(contractTotalService.reconcile()).isZero();
+
+        ClientContractTotal stored = totalRepository.findById(client.getId()).orElseThrow();
+        stored.setActiveCost(BigDecimal.ONE);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(contractTotalService.reconcile()).isEqualTo(1);
+        assertThat(total().getActiveCost()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    @DisplayName("❌ la suppression du client supprime son agrégat")
+    void deleteClient_removesTotal() {
+        total();
+
+        clientService.deleteClient(client.getId());
+        entityManager.flush();
+
+        assertThat(totalRepository.findById(client.getId())).isEmpty();
+    }
+}
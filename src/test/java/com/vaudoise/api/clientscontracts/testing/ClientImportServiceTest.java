@@ -0,0 +1,138 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientImportService;
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.ImportReport;
+import com.vaudoise.api.clientscontracts.mapper.ClientMapper;
+import com.vaudoise.api.clientscontracts.mapper.ContractMapper;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// pas de transaction de test : l'import valide un lot par transaction, comme en production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ClientImportService.class, ClientMapper.class, ContractMapper.class, ChangeFeedService.class })
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@TestPropertySource(properties = "clients.import.batch-size=3")
+class ClientImportServiceTest {
+
+    @Autowired
+    private ClientImportService importService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    private ClientDto row(String type, String name, Double... costs) {
+        ClientDto dto = new ClientDto();
+        dto.setId(999L); // ignoré : chaque ligne crée un nouveau client
+        dto.setClientType(type);
+        dto.setName(name);
+        dto.setEmail(name.toLowerCase() + "@vaudoise.ch");
+        List<ContractDto> contracts = new ArrayList<>();
+        for (Double cost : costs) {
+            ContractDto contract = new ContractDto();
+            contract.setCost(cost);
+            contracts.add(contract);
+        }
+        dto.setContracts(contracts);
+        return dto;
+    }
+
+    @Test
+    @DisplayName("Importe les clients et leurs contrats sur plusieurs lots")
+    void importClients_persistsClientsWithContracts() {
+        List<ClientDto> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(row("PERSON", "Client" + i, 100.0, 200.0));
+        }
+        rows.get(0).setBirthdate("1990-05-01");
+
+        ImportReport report = importService.importClients(rows.iterator());
+
+        assertThat(report.getImported()).isEqualTo(7);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getErrors()).isEmpty();
+        List<Client> clients = clientRepository.findAll();
+        assertThat(clients).hasSize(7).allSatisfy(client -> assertThat(client.getId()).isNotEqualTo(999L));
+        Person first = (Person) clients.stream().filter(c -> c.getName().equals("Client0")).findFirst().orElseThrow();
+        assertThat(first.getBirthDate()).isEqualTo(LocalDate.of(1990, 5, 1));
+    }
+
+    @Test
+    @DisplayName("Rapporte les lignes invalides sans bloquer les autres")
+    void importClients_reportsInvalidRows() {
+        ClientDto companyWithoutIdentifier = row("COMPANY", "Acme");
+        ClientDto longName = row("PERSON", "x".repeat(300)); // refusé par la base (varchar 255) : le lot est rejoué ligne à ligne
+        List<ClientDto> rows = List.of(
+                row("PERSON", "Alice", 50.0),
+                row("ROBOT", "R2D2"),
+                companyWithoutIdentifier,
+                longName,
+                row("PERSON", "Bob"));
+
+        ImportReport report = importService.importClients(rows.iterator());
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::getRow).containsExactly(2L, 3L, 4L);
+        assertThat(report.getErrors().get(0).getMessage()).contains("ROBOT");
+        assertThat(report.getErrors().get(1).getMessage()).contains("companyIdentifier");
+        assertThat(clientRepository.findAll()).extracting(Client::getName).containsExactlyInAnyOrder("Alice", "Bob");
+    }
+
+    @Test
+    @DisplayName("S'arrête à la première ligne illisible en gardant les lignes déjà importées")
+    void importClients_stopsOnMalformedRow() {
+        Iterator<ClientDto> rows = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public ClientDto next() {
+                if (read++ == 1) {
+                    throw new IllegalStateException("Unexpected character");
+                }
+                return row("PERSON", "Alice");
+            }
+        };
+
+        ImportReport report = importService.importClients(rows);
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getRow()).isEqualTo(2);
+            assertThat(error.getMessage()).contains("Unexpected character");
+        });
+    }
+}
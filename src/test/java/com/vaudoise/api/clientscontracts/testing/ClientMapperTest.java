@@ -0,0 +1,120 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.dto.ClientDto;
+import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.mapper.ClientMapper;
+import com.vaudoise.api.clientscontracts.mapper.ContractMapper;
+import com.vaudoise.api.clientscontracts.model.Company;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hand written mappers must produce exactly what the reflective ModelMapper
+ * produced before them.
+ */
+class ClientMapperTest {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ClientMapper clientMapper = new ClientMapper(new ContractMapper());
+
+    private ClientDto clientDto(String type) {
+        ContractDto contractDto = new ContractDto();
+        contractDto.setId(7L);
+        contractDto.setStartDate(LocalDate.of(2024, 1, 1));
+        contractDto.setEndDate(LocalDate.of(2025, 1, 1));
+        contractDto.setCost(1250.75);
+
+        ClientDto dto = new ClientDto();
+        dto.setId(5L);
+        dto.setName("Mohamed Ikich");
+        dto.setPhone("0600000000");
+        dto.setEmail("mohamed.ikich@vaudoise.ch");
+        dto.setClientType(type);
+        dto.setBirthdate("1998-05-17");
+        dto.setCompanyIdentifier("CHE-123.456.789");
+        dto.setContracts(List.of(contractDto));
+        return dto;
+    }
+
+    private Contract contract(long id) {
+        Contract contract = new Contract();
+        contract.setId(id);
+        contract.setStartDate(LocalDate.of(2024, 3, 10));
+        contract.setCostAmount(3200.0);
+        contract.setLastUpdateDate(LocalDateTime.of(2024, 3, 10, 8, 0));
+        return contract;
+    }
+
+    @Test
+    @DisplayName("✅ ClientDto → Person identique à ModelMapper")
+    void toPerson_sameAsModelMapper() {
+        ClientDto dto = clientDto("PERSON");
+
+        assertThat(clientMapper.toPerson(dto))
+                .usingRecursiveComparison()
+                .isEqualTo(modelMapper.map(dto, Person.class));
+    }
+
+    @Test
+    @DisplayName("✅ ClientDto → Company identique à ModelMapper")
+    void toCompany_sameAsModelMapper() {
+        ClientDto dto = clientDto("COMPANY");
+
+        assertThat(clientMapper.toCompany(dto))
+                .usingRecursiveComparison()
+                .isEqualTo(modelMapper.map(dto, Company.class));
+    }
+
+    @Test
+    @DisplayName("✅ ClientDto sans contrats → liste de contrats nulle comme ModelMapper")
+    void toPerson_withoutContracts_sameAsModelMapper() {
+        ClientDto dto = clientDto("PERSON");
+        dto.setContracts(null);
+
+        assertThat(clientMapper.toPerson(dto))
+                .usingRecursiveComparison()
+                .isEqualTo(modelMapper.map(dto, Person.class));
+    }
+
+    @Test
+    @DisplayName("✅ Person → ClientDto identique à ModelMapper")
+    void personToDto_sameAsModelMapper() {
+        Person person = new Person();
+        person.setId(1L);
+        person.setName("Mohamed Ikich");
+        person.setPhone("0600000000");
+        person.setEmail("mohamed.ikich@vaudoise.ch");
+        person.setBirthDate(LocalDate.of(1998, 5, 17));
+        Contract contract = contract(10L);
+        contract.setClient(person);
+        person.setContracts(new ArrayList<>(List.of(contract, contract(11L))));
+
+        assertThat(clientMapper.toDto(person))
+                .usingRecursiveComparison()
+                .isEqualTo(modelMapper.map(person, ClientDto.class));
+    }
+
+    @Test
+    @DisplayName("✅ Company → ClientDto identique à ModelMapper")
+    void companyToDto_sameAsModelMapper() {
+        Company company = new Company();
+        company.setId(2L);
+        company.setName("Vaudoise");
+        company.setCompanyIdentifier("CHE-123.456.789");
+
+        assertThat(clientMapper.toDto(company))
+                .usingRecursiveComparison()
+                .isEqualTo(modelMapper.map(company, ClientDto.class));
+    }
+}
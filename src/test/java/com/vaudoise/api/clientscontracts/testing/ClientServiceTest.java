@@ -0,0 +1,90 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.OptimisticRetry;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({ ClientService.class, ClientContractTotalService.class, ChangeFeedService.class,
+        OptimisticRetry.class, SimpleMeterRegistry.class })
+class ClientServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    private Person client;
+    private Person otherClient;
+
+    @BeforeEach
+    void setUp() {
+        client = persistClient("Mohamed Ikich");
+        persistContract(client, null);
+        persistContract(client, LocalDate.now().plusDays(10));
+        persistContract(client, LocalDate.now().minusDays(10));
+        otherClient = persistClient("Autre client");
+        persistContract(otherClient, null);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Person persistClient(String name) {
+        Person person = new Person();
+        person.setName(name);
+        return entityManager.persist(person);
+    }
+
+    private void persistContract(Person owner, LocalDate endDate) {
+        Contract contract = new Contract();
+        contract.setClient(owner);
+        contract.setCostAmount(100.0);
+        contract.setEndDate(endDate);
+        entityManager.persist(contract);
+    }
+
+    @Test
+    @DisplayName("✅ supprime le client et ses contrats, et compte les contrats actifs clôturés")
+    void deleteClient_closesActiveContractsAndDeletesClient() {
+        assertThat(clientService.deleteClient(client.getId())).isEqualTo(2);
+
+        assertThat(clientRepository.findById(client.getId())).isEmpty();
+        assertThat(contractRepository.findAll()).extracting(contract -> contract.getClient().getId())
+                .containsExactly(otherClient.getId());
+    }
+
+    @Test
+    @DisplayName("❌ lève EntityNotFoundException pour un client inexistant")
+    void deleteClient_unknownClient() {
+        assertThatThrownBy(() -> clientService.deleteClient(999_999L)).isInstanceOf(EntityNotFoundException.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.OptimisticRetry;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// sans transaction de test ni open-in-view : ce que renvoient les services doit être utilisable une fois leur transaction terminée
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ClientService.class, ClientContractTotalService.class, ChangeFeedService.class,
+        OptimisticRetry.class, SimpleMeterRegistry.class })
+class ClientServiceTransactionTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private Person client;
+
+    @BeforeEach
+    void setUp() {
+        client = new Person();
+        client.setName("Mohamed Ikich");
+        Contract contract = new Contract();
+        contract.setCostAmount(100.0);
+        contract.setClient(client);
+        client.getContracts().add(contract);
+        client = (Person) clientService.createClient(client);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ une page de clients est renvoyée avec les contrats déjà chargés")
+    void getClients_loadsContracts() {
+        List<Client> clients = clientService.getClients(null, 0, 10);
+
+        assertThat(clients).singleElement()
+                .satisfies(page -> assertThat(Hibernate.isInitialized(page.getContracts())).isTrue())
+                .satisfies(page -> assertThat(page.getContracts()).hasSize(1));
+    }
+
+    @Test
+    @DisplayName("✅ le client mis à jour est renvoyé avec ses contrats")
+    void updateClient_loadsContracts() {
+        Person changes = new Person();
+        changes.setName("Nouveau nom");
+
+        Client updated = clientService.updateClient(client.getId(), changes);
+
+        assertThat(updated.getName()).isEqualTo("Nouveau nom");
+        assertThat(Hibernate.isInitialized(updated.getContracts())).isTrue();
+        assertThat(updated.getContracts()).hasSize(1);
+    }
+}
@@ -0,0 +1,151 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.config.AdaptiveConcurrencyLimit;
+import com.vaudoise.api.clientscontracts.config.ConcurrencyLimitFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitTest {
+
+    private static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("⛔ limite atteinte → requête refusée jusqu'à la libération d'un créneau")
+    void limitReached_refusesUntilRelease() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release();
+        assertThat(limit.getInFlight()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("📈 limite atteinte et latence stable → la limite grandit jusqu'au maximum")
+    void saturatedWithStableLatency_grows() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 50);
+
+        saturate(limit, ONE_MS, 100);
+
+        assertThat(limit.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("📉 latence qui se dégrade → la limite diminue, sans descendre sous le minimum")
+    void risingLatency_shrinks() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 5, 50);
+        saturate(limit, ONE_MS, 100);
+
+        saturate(limit, 20 * ONE_MS, 1);
+        assertThat(limit.getLimit()).isLessThan(50);
+
+        saturate(limit, 20 * ONE_MS, 10);
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("💤 peu de requêtes simultanées → la latence ne change pas la limite")
+    void appLimited_keepsLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 50);
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release((i % 2 == 0 ? 1 : 50) * ONE_MS);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("🚦 écritures saturées → 503 avec Retry-After, les lectures passent toujours")
+    void writesSaturated_rejectsWritesOnly() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(meterRegistry, 2, 10, 2, 10, 1, Duration.ofSeconds(3));
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // deux écritures bloquées dans le contrôleur occupent la limite des écritures
+            Future<?> first = executor.submit(() -> perform(filter, "PUT", "/api/contracts/1/updateCost", release));
+            Future<?> second = executor.submit(() -> perform(filter, "DELETE", "/api/clients/2", release));
+            while (meterRegistry.get("api.concurrency.in-flight").tag("type", "write").gauge().value() < 2) {
+                Thread.sleep(5);
+            }
+
+            MockHttpServletResponse rejected = perform(filter, "POST", "/api/contracts/client/1", null);
+            MockHttpServletResponse read = perform(filter, "GET", "/api/clients/1", null);
+            MockHttpServletResponse outsideApi = perform(filter, "POST", "/actuator/refresh", null);
+
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            assertThat(rejected.getHeader("Retry-After")).isEqualTo("3");
+            assertThat(rejected.getContentAsString()).contains("Too many concurrent requests");
+            assertThat(read.getStatus()).isEqualTo(200);
+            assertThat(outsideApi.getStatus()).isEqualTo(200);
+            assertThat(meterRegistry.get("api.concurrency.rejected").tag("type", "write").counter().count())
+                    .isEqualTo(1);
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertThat(perform(filter, "POST", "/api/contracts/client/1", null).getStatus()).isEqualTo(200);
+        }
+        finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    // remplit la limite puis libère chaque requête avec la latence donnée, `rounds` fois
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+
+    private static MockHttpServletResponse perform(ConcurrencyLimitFilter filter, String method, String uri,
+            CountDownLatch blockUntil) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain controller = (req, res) -> {
+            if (blockUntil != null) {
+                try {
+                    blockUntil.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            filter.doFilter(new MockHttpServletRequest(method, uri), response, controller);
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -2,32 +2,39 @@ package com.vaudoise.api.clientscontracts.testing;
 
 import com.vaudoise.api.clientscontracts.Controllers.ContractController;
 import com.vaudoise.api.clientscontracts.Service.ClientService;
+import com.vaudoise.api.clientscontracts.Service.ContractEventService;
 import com.vaudoise.api.clientscontracts.Service.ContractService;
 import com.vaudoise.api.clientscontracts.dto.ClientDto;
 import com.vaudoise.api.clientscontracts.dto.ContractDto;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.mapper.ContractMapper;
 import com.vaudoise.api.clientscontracts.model.Contract;
 import com.vaudoise.api.clientscontracts.model.Person;
 
 import jakarta.persistence.EntityNotFoundException;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -41,6 +48,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ContractController.class)
+@Import({ ContractMapper.class, SimpleMeterRegistry.class })
 class ContractControllerTest {
 
     @Autowired
@@ -48,13 +56,13 @@ class ContractControllerTest {
 
     @MockBean
     private ContractService contractService;
+
+    @MockBean
+    private ContractEventService contractEventService;
     
     @MockBean
     private ClientService clientService;
 
-    @MockBean
-    private ModelMapper modelMapper; // ✅ ajouté pour corriger l’erreur
-    
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -119,7 +127,8 @@ class ContractControllerTest {
         .andExpect(status().isCreated())
         .andExpect(jsonPath("$.id").value(10))
         .andExpect(jsonPath("$.costAmount").value(1000.0))
-        .andExpect(jsonPath("$.startDate").value("2025-01-01"));
+        .andExpect(jsonPath("$.startDate").value("2025-01-01"))
+        .andExpect(jsonPath("$.client").doesNotExist());
     }
 
 
@@ -227,9 +236,42 @@ class ContractControllerTest {
                 .andExpect(jsonPath("$.message").value("Internal error: Unexpected error"));
     }
 
-    
+    // ✅ RÉVISION TARIFAIRE EN MASSE
+    @Test
+    @DisplayName("✅ PUT /api/contracts/costs - applique la liste de coûts (200)")
+    void updateCosts_Success() throws Exception {
+        List<CostUpdate> updates = List.of(new CostUpdate(1L, 1200.0), new CostUpdate(2L, 800.0));
+        when(contractService.updateCosts(anyList())).thenReturn(2);
+
+        mockMvc.perform(put("/api/contracts/costs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updates)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contractsUpdated").value(2));
+    }
 
-}
+    @Test
+    @DisplayName("❌ PUT /api/contracts/costs - contrat inconnu (404)")
+    void updateCosts_ContractNotFound() throws Exception {
+        when(contractService.updateCosts(anyList()))
+                .thenThrow(new EntityNotFoundException("Contracts not found: [999]"));
+
+        mockMvc.perform(put("/api/contracts/costs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new CostUpdate(999L, 10.0)))))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Contracts not found: [999]"));
+    }
 
+    @Test
+    @DisplayName("✅ PUT /api/contracts/client/{id}/costs/active - +3 % sur les contrats actifs (200)")
+    void applyCostRate_Success() throws Exception {
+        when(contractService.applyCostRate(1L, new BigDecimal("3"))).thenReturn(5);
 
+        mockMvc.perform(put("/api/contracts/client/{id}/costs/active", 1L)
+                        .param("percent", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contractsUpdated").value(5));
+    }
 
+}
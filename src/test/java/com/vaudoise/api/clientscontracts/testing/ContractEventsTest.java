@@ -0,0 +1,179 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ContractEventService;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// serveur HTTP réel : les événements doivent partir au fil des commits, sans attendre la fin de la réponse
+// (tampon de 4 événements par abonné : un lot plus grand ferme le flux)
+class ContractEventsTest extends ApplicationTestSupport {
+
+    private static final String END_OF_STREAM = "<fin du flux>";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<Stream<String>> streams = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        streams.forEach(Stream::close);
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("📡 flux d'un client : ses créations, mises à jour et clôtures de contrats, terminé à sa suppression")
+    void clientStream_pushesItsContractEvents() throws Exception {
+        Client client = clientWithContracts(1);
+        Client other = clientWithContracts(1);
+        BlockingQueue<String> events = subscribe("/api/clients/" + client.getId() + "/contracts/events");
+        long cursor = changeFeedService.lastSequence();
+
+        Contract created = newContract(client, 80.0);
+        newContract(other, 90.0);
+        contractService.updateCost(created.getId(), 120.0);
+        clientService.deleteClient(client.getId());
+
+        assertThat(next(events)).as("numéro du flux des modifications").isEqualTo("id:" + (cursor + 1));
+        assertThat(next(events)).isEqualTo("event:CONTRACT_CREATED");
+        assertThat(next(events)).startsWith("data:{").contains("\"contractId\":" + created.getId());
+        assertThat(eventNames(events)).containsExactly("CONTRACT_COST_UPDATED", "CONTRACT_CLOSED", "CONTRACT_CLOSED");
+    }
+
+    @Test
+    @DisplayName("📡 flux global : les événements de tous les clients")
+    void globalStream_pushesEveryClientEvents() throws Exception {
+        Client first = clientWithContracts(0);
+        Client second = clientWithContracts(0);
+        BlockingQueue<String> events = subscribe("/api/contracts/events");
+
+        newContract(first, 10.0);
+        newContract(second, 20.0);
+
+        List<String> received = new ArrayList<>();
+        while (received.stream().filter(line -> line.startsWith("data:")).count() < 2) {
+            received.add(next(events));
+        }
+        assertThat(received).filteredOn(line -> line.startsWith("data:"))
+                .anySatisfy(line -> assertThat(line).contains("\"clientId\":" + first.getId()))
+                .anySatisfy(line -> assertThat(line).contains("\"clientId\":" + second.getId()));
+    }
+
+    @Test
+    @DisplayName("🐢 un lot plus grand que le tampon de l'abonné ferme son flux, l'écriture n'attend pas")
+    void overflowingSubscriber_isEvicted() throws Exception {
+        Client client = clientWithContracts(6);
+        BlockingQueue<String> events = subscribe("/api/clients/" + client.getId() + "/contracts/events");
+        double evictions = meterRegistry.counter("contracts.events.evictions").count();
+
+        contractService.applyCostRate(client.getId(), BigDecimal.ONE);
+
+        assertThat(events.poll(10, TimeUnit.SECONDS)).isEqualTo(END_OF_STREAM);
+        assertThat(meterRegistry.counter("contracts.events.evictions").count()).isEqualTo(evictions + 1);
+    }
+
+    @Test
+    @DisplayName("🚫 nombre maximal d'abonnements atteint → aucun nouveau flux")
+    void subscriptions_areBounded() {
+        ContractEventService service = new ContractEventService(new SimpleMeterRegistry(),
+                4, 2, Duration.ofMinutes(1), 1, Duration.ofSeconds(10));
+
+        assertThat(service.subscribe(1L)).isPresent();
+        assertThat(service.subscribe(null)).isPresent();
+        assertThat(service.subscribe(2L)).isEmpty();
+        service.destroy();
+    }
+
+    @Test
+    @DisplayName("❌ flux d'un client inconnu → 404")
+    void unknownClient_isNotFound() throws Exception {
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/api/clients/999999/contracts/events")).build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.statusCode()).isEqualTo(404);
+    }
+
+    // lignes du flux (hors commentaires de maintien) lues en tâche de fond ;
+    // la réponse (en-têtes) est reçue : l'abonnement est enregistré
+    private BlockingQueue<String> subscribe(String path) throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> response = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "text/event-stream").build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                type -> assertThat(type).startsWith("text/event-stream"));
+        streams.add(response.body());
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                response.body().filter(line -> !line.isEmpty() && !line.startsWith(":")).forEach(lines::add);
+            } catch (RuntimeException closed) {
+                // flux fermé par le test
+            }
+            lines.add(END_OF_STREAM);
+        });
+        reader.setDaemon(true);
+        reader.start();
+        return lines;
+    }
+
+    private static String next(BlockingQueue<String> events) throws InterruptedException {
+        String line = events.poll(10, TimeUnit.SECONDS);
+        assertThat(line).as("événement reçu").isNotNull();
+        return line;
+    }
+
+    // noms des événements jusqu'à la fin du flux
+    private static List<String> eventNames(BlockingQueue<String> events) throws InterruptedException {
+        List<String> names = new ArrayList<>();
+        for (String line = next(events); !line.equals(END_OF_STREAM); line = next(events)) {
+            if (line.startsWith("event:")) {
+                names.add(line.substring("event:".length()));
+            }
+        }
+        return names;
+    }
+
+    private Contract newContract(Client client, double cost) {
+        Contract contract = new Contract();
+        contract.setCostAmount(cost);
+        return contractService.createContract(client.getId(), contract);
+    }
+}
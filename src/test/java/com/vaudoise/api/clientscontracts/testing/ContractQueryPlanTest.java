@@ -0,0 +1,175 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Company;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs H2's EXPLAIN on the SQL Hibernate really generates for the hot
+ * ContractRepository queries : a query change that falls back to a table scan
+ * fails the build.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.vaudoise.api.clientscontracts.testing.ContractQueryPlanTest$SqlCapture")
+class ContractQueryPlanTest {
+
+    // garde les requêtes envoyées par Hibernate
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate today = LocalDate.now();
+    private long clientId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 20; i++) {
+            Client client;
+            if (i % 2 == 0) {
+                client = new Person();
+            } else {
+                Company company = new Company();
+                company.setCompanyIdentifier("CHE-" + i);
+                client = company;
+            }
+            client.setName("Client " + i);
+            entityManager.persist(client);
+            clientId = client.getId();
+            for (int j = 0; j < 20; j++) {
+                Contract contract = new Contract();
+                contract.setClient(client);
+                contract.setCostAmount(100.0 + j);
+                contract.setEndDate(j % 2 == 0 ? null : today.plusDays(j - 10));
+                entityManager.persist(contract);
+            }
+        }
+        entityManager.flush();
+        jdbcTemplate.execute("analyze");
+        SqlCapture.statements.clear();
+    }
+
+    private String lastSelect() {
+        return last("select");
+    }
+
+    private String last(String statementType) {
+        return SqlCapture.statements.stream()
+                .filter(sql -> sql.startsWith(statementType))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, args);
+    }
+
+    @Test
+    @DisplayName("📈 contrats actifs : accès par index sur client_id, branche IS NULL comprise")
+    void activeContracts_useClientIndex() {
+        contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(clientId, today);
+
+        String plan = explain(lastSelect(), clientId, Date.valueOf(today));
+
+        assertThat(plan).doesNotContain("tableScan")
+                .containsPattern("/\\* PUBLIC\\.\\w+: CLIENT_ID = ")
+                .contains("IS NULL");
+    }
+
+    @Test
+    @DisplayName("📈 agrégat des contrats actifs : accès par index sur client_id")
+    void activeContractsStats_useClientIndex() {
+        contractRepository.activeContractsStats(clientId, today);
+
+        String plan = explain(lastSelect(), clientId, Date.valueOf(today));
+
+        assertThat(plan).doesNotContain("tableScan")
+                .containsPattern("/\\* PUBLIC\\.\\w+: CLIENT_ID = ");
+    }
+
+    @Test
+    @DisplayName("📈 contrats modifiés après une date : parcours d'intervalle sur (client_id, update_date)")
+    void contractsUpdatedAfter_useClientUpdateDateIndex() {
+        contractRepository.findByClientIdAndUpdateDateAfter(clientId, today.atStartOfDay());
+
+        String plan = explain(lastSelect(), clientId, Timestamp.valueOf(today.atStartOfDay()));
+
+        assertThat(plan).doesNotContain("tableScan")
+                .containsPattern("/\\* PUBLIC\\.IDX_CONTRACT_CLIENT_UPDATE_DATE: CLIENT_ID = [^*]*AND UPDATE_DATE > ");
+    }
+
+    @Test
+    @DisplayName("📄 page de contrats actifs : seek sur (client_id, id) sans tri, coût constant quelle que soit la page")
+    void activeContractsPage_seeksIndexInOrder() {
+        contractRepository.findActivePage(clientId, today, 5L, Limit.of(10));
+
+        String plan = explain(lastSelect(), clientId, Date.valueOf(today), 5L, 10);
+
+        assertThat(plan).doesNotContain("tableScan")
+                .contains("PUBLIC.IDX_CONTRACT_CLIENT_ID")
+                .contains("index sorted");
+    }
+
+    @Test
+    @DisplayName("📄 page de clients d'un type : seek sur (client_type, id) sans tri")
+    void clientsPageByType_seeksIndexInOrder() {
+        clientRepository.findPageByType(Person.class, 5L, Limit.of(10));
+
+        String plan = explain(lastSelect(), "PERSON", 5L, 10);
+
+        assertThat(plan).doesNotContain("tableScan")
+                .contains("PUBLIC.IDX_CLIENT_TYPE_ID")
+                .contains("index sorted");
+    }
+
+    @Test
+    @DisplayName("💱 révision tarifaire d'un client : UPDATE par index sur client_id")
+    void scaleActiveCosts_useClientIndex() {
+        contractRepository.scaleActiveCosts(clientId, new BigDecimal("1.03"), today, LocalDateTime.now());
+
+        String plan = explain(last("update"), 1.03, Timestamp.valueOf(LocalDateTime.now()), clientId, Date.valueOf(today));
+
+        assertThat(plan).doesNotContain("tableScan")
+                .containsPattern("/\\* PUBLIC\\.\\w+: CLIENT_ID = ");
+    }
+}
@@ -0,0 +1,98 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ActiveContractsStats;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.dto.ContractSummaryDto;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+class ContractRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    private final LocalDate today = LocalDate.now();
+    private Person client;
+    private Person otherClient;
+
+    @BeforeEach
+    void setUp() {
+        client = persistClient("Mohamed Ikich");
+        otherClient = persistClient("Other Client");
+    }
+
+    private Person persistClient(String name) {
+        Person person = new Person();
+        person.setName(name);
+        return entityManager.persist(person);
+    }
+
+    private Contract persistContract(Client owner, double cost, LocalDate endDate) {
+        Contract contract = new Contract();
+        contract.setClient(owner);
+        contract.setCostAmount(cost);
+        contract.setEndDate(endDate);
+        return entityManager.persist(contract);
+    }
+
+    @Test
+    @DisplayName("✅ contrats actifs : uniquement ceux du client, sans date de fin ou avec date de fin future")
+    void findActiveContracts_returnsOnlyActiveContractsOfClient() {
+        Contract open = persistContract(client, 10.0, null);
+        Contract future = persistContract(client, 20.0, today.plusDays(1));
+        persistContract(client, 30.0, today.minusDays(1));
+        persistContract(otherClient, 40.0, null);
+        entityManager.flush();
+
+        assertThat(contractRepository.findByClientIdAndEndDateAfterOrEndDateIsNull(client.getId(), today))
+                .extracting(ContractSummaryDto::getId, ContractSummaryDto::getClientId, ContractSummaryDto::getCostAmount)
+                .containsExactlyInAnyOrder(tuple(open.getId(), client.getId(), 10.0),
+                        tuple(future.getId(), client.getId(), 20.0));
+    }
+
+    @Test
+    @DisplayName("✅ somme exacte, nombre et prochaine échéance des seuls contrats actifs du client")
+    void activeContractsStats_coversOnlyActiveContractsOfClient() {
+        persistContract(client, 0.1, null);
+        persistContract(client, 0.2, today.plusDays(10));
+        persistContract(client, 1000.0, today.minusDays(1));
+        persistContract(client, 500.0, today);
+        persistContract(otherClient, 50.0, null);
+        entityManager.flush();
+
+        ActiveContractsStats stats = contractRepository.activeContractsStats(client.getId(), today);
+
+        assertThat(stats.getTotal()).isEqualByComparingTo("0.30");
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getNextExpiry()).isEqualTo(today.plusDays(10));
+    }
+
+    @Test
+    @DisplayName("⚪ aucune ligne active → total nul et compteur à 0")
+    void activeContractsStats_isEmpty_whenNoActiveContract() {
+        persistContract(client, 1000.0, today.minusDays(1));
+        entityManager.flush();
+
+        ActiveContractsStats stats = contractRepository.activeContractsStats(client.getId(), today);
+
+        assertThat(stats.getTotal()).isNull();
+        assertThat(stats.getCount()).isZero();
+    }
+}
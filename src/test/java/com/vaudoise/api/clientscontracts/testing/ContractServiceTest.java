@@ -0,0 +1,138 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.Service.ContractService;
+import com.vaudoise.api.clientscontracts.Service.OptimisticRetry;
+import com.vaudoise.api.clientscontracts.dto.CostUpdate;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({ ContractService.class, ClientContractTotalService.class, ChangeFeedService.class,
+        OptimisticRetry.class, SimpleMeterRegistry.class })
+class ContractServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ContractService contractService;
+
+    @Autowired
+    private ClientContractTotalService contractTotalService;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    private Person client;
+    private Contract active;
+    private Contract openEnded;
+    private Contract closed;
+
+    @BeforeEach
+    void setUp() {
+        client = new Person();
+        client.setName("Mohamed Ikich");
+        entityManager.persist(client);
+        active = persistContract(100.0, LocalDate.now().plusDays(30));
+        openEnded = persistContract(200.0, null);
+        closed = persistContract(300.0, LocalDate.now().minusDays(30));
+        entityManager.flush();
+        // agrégat calculé avant la révision : il doit suivre les nouveaux coûts
+        assertThat(contractTotalService.getTotal(client.getId()).getActiveCost()).isEqualByComparingTo("300");
+        entityManager.clear();
+    }
+
+    private Contract persistContract(double cost, LocalDate endDate) {
+        Contract contract = new Contract();
+        contract.setClient(client);
+        contract.setCostAmount(cost);
+        contract.setEndDate(endDate);
+        return entityManager.persist(contract);
+    }
+
+    private Contract reload(Contract contract) {
+        return contractRepository.findById(contract.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("✅ applique les coûts par lot, le dernier coût d'un contrat l'emporte")
+    void updateCosts_appliesAllCosts() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        int updated = contractService.updateCosts(List.of(
+                new CostUpdate(active.getId(), 150.0),
+                new CostUpdate(closed.getId(), 10.0),
+                new CostUpdate(active.getId(), 110.0)));
+
+        assertThat(updated).isEqualTo(2);
+        entityManager.clear();
+        assertThat(reload(active).getCostAmount()).isEqualTo(110.0);
+        assertThat(reload(active).getLastUpdateDate()).isAfter(before);
+        assertThat(reload(closed).getCostAmount()).isEqualTo(10.0);
+        assertThat(contractTotalService.getTotal(client.getId()).getActiveCost()).isEqualByComparingTo("310");
+    }
+
+    @Test
+    @DisplayName("❌ refuse la liste si un contrat est inconnu")
+    void updateCosts_unknownContract() {
+        assertThatThrownBy(() -> contractService.updateCosts(List.of(
+                new CostUpdate(active.getId(), 150.0), new CostUpdate(999_999L, 1.0))))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessageContaining("999999");
+    }
+
+    @Test
+    @DisplayName("✅ +3 % sur les contrats actifs du client uniquement")
+    void applyCostRate_scalesActiveContracts() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        assertThat(contractService.applyCostRate(client.getId(), new BigDecimal("3"))).isEqualTo(2);
+
+        assertThat(reload(active).getCostAmount()).isEqualTo(103.0);
+        assertThat(reload(openEnded).getCostAmount()).isEqualTo(206.0);
+        assertThat(reload(openEnded).getLastUpdateDate()).isAfter(before);
+        assertThat(reload(closed).getCostAmount()).isEqualTo(300.0);
+        assertThat(contractTotalService.getTotal(client.getId()).getActiveCost()).isEqualByComparingTo("309");
+    }
+
+    @Test
+    @DisplayName("✅ taux calculé en décimal : 10 + 0,05 % = 10,005 arrondi à 10,01")
+    void applyCostRate_roundsExactProduct() {
+        contractService.updateCosts(List.of(new CostUpdate(openEnded.getId(), 10.0)));
+
+        contractService.applyCostRate(client.getId(), new BigDecimal("0.05"));
+
+        assertThat(reload(active).getCostAmount()).isEqualTo(100.05);
+        assertThat(reload(openEnded).getCostAmount()).isEqualTo(10.01);
+    }
+
+    @Test
+    @DisplayName("❌ client inconnu")
+    void applyCostRate_unknownClient() {
+        assertThatThrownBy(() -> contractService.applyCostRate(999_999L, BigDecimal.ONE))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+}
@@ -0,0 +1,149 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.CostWriteBehind;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// écriture différée avec une fenêtre de 300 ms et au plus 3 contrats en attente
+class CostWriteBehindTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CostWriteBehind writeBehind;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("🔁 rafale de mises à jour d'un contrat → regroupées, seule la dernière valeur est écrite")
+    void burst_isCoalesced() throws Exception {
+        long contractId = contractIds(1).get(0);
+        double coalescedBefore = meterRegistry.counter("contracts.write-behind.coalesced").count();
+
+        CompletableFuture<Void> last = null;
+        for (int i = 1; i <= 100; i++) {
+            last = writeBehind.submit(contractId, 1000.0 + i).orElseThrow();
+        }
+        last.get(10, TimeUnit.SECONDS);
+
+        Contract contract = contractRepository.findById(contractId).orElseThrow();
+        assertThat(contract.getCostAmount()).isEqualTo(1100.0);
+        // une écriture, deux si une fin de fenêtre est tombée au milieu de la rafale
+        assertThat(contract.getVersion()).isBetween(1L, 2L);
+        assertThat(meterRegistry.counter("contracts.write-behind.coalesced").count() - coalescedBefore)
+                .isGreaterThanOrEqualTo(98);
+    }
+
+    @Test
+    @DisplayName("✅ PUT updateCost avec Prefer: respond-async → 200 après le commit du lot")
+    void preferRespondAsync_answersOnceDurable() throws Exception {
+        long contractId = contractIds(1).get(0);
+
+        MvcResult pending = mockMvc.perform(put("/api/contracts/{id}/updateCost", contractId)
+                        .param("updatedCost", "1750.0").header("Prefer", "respond-async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contractId").value(contractId))
+                .andExpect(jsonPath("$.cost").value(1750.0));
+
+        assertThat(contractRepository.findById(contractId).orElseThrow().getCostAmount()).isEqualTo(1750.0);
+    }
+
+    @Test
+    @DisplayName("❌ contrat inconnu dans le lot → seule sa mise à jour échoue, les autres sont écrites")
+    void unknownContract_failsAlone() throws Exception {
+        long contractId = contractIds(1).get(0);
+
+        CompletableFuture<Void> known = writeBehind.submit(contractId, 300.0).orElseThrow();
+        CompletableFuture<Void> unknown = writeBehind.submit(999_999L, 300.0).orElseThrow();
+
+        known.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> unknown.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("Contract Not found");
+        assertThat(contractRepository.findById(contractId).orElseThrow().getCostAmount()).isEqualTo(300.0);
+    }
+
+    @Test
+    @DisplayName("⚠️ file pleine → nouveau contrat refusé (écriture synchrone), contrat déjà en attente accepté")
+    void fullQueue_refusesNewContracts() throws Exception {
+        List<Long> ids = contractIds(4);
+
+        List<CompletableFuture<Void>> queued = ids.subList(0, 3).stream()
+                .map(id -> writeBehind.submit(id, 500.0).orElseThrow()).toList();
+        Optional<CompletableFuture<Void>> refused = writeBehind.submit(ids.get(3), 500.0);
+        Optional<CompletableFuture<Void>> coalesced = writeBehind.submit(ids.get(0), 600.0);
+
+        assertThat(refused).isEmpty();
+        assertThat(coalesced).isPresent();
+        CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        assertThat(contractRepository.findById(ids.get(0)).orElseThrow().getCostAmount()).isEqualTo(600.0);
+    }
+
+    @Test
+    @DisplayName("🔒 coût en file puis PUT conditionnel (If-Match) → la file n'écrase pas la valeur conditionnelle")
+    void queuedCost_isSupersededBySynchronousWrite() throws Exception {
+        long contractId = contractIds(1).get(0);
+        Contract contract = contractRepository.findById(contractId).orElseThrow();
+        CompletableFuture<Void> queued = writeBehind.submit(contractId, 900.0).orElseThrow();
+
+        mockMvc.perform(put("/api/contracts/{id}/updateCost", contractId)
+                        .param("updatedCost", "1250.0")
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + contract.getVersion() + "\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.costAmount").value(1250.0));
+
+        // la mise à jour en file n'est pas écrite : sa requête reçoit une erreur de modification concurrente
+        assertThatThrownBy(() -> queued.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(OptimisticLockingFailureException.class);
+        // au-delà de la fenêtre d'écriture : plus rien en attente pour ce contrat
+        Thread.sleep(900);
+        assertThat(contractRepository.findById(contractId).orElseThrow().getCostAmount()).isEqualTo(1250.0);
+    }
+
+    private List<Long> contractIds(int contracts) {
+        return clientWithContracts(contracts).getContracts().stream().map(Contract::getId).toList();
+    }
+}
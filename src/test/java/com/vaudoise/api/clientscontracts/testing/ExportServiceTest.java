@@ -0,0 +1,106 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vaudoise.api.clientscontracts.Service.ExportService;
+import com.vaudoise.api.clientscontracts.model.Company;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(ExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Person person;
+
+    @BeforeEach
+    void setUp() {
+        person = new Person();
+        person.setName("Mohamed Ikich");
+        person.setBirthDate(LocalDate.of(1998, 5, 17));
+        entityManager.persist(person);
+
+        Company company = new Company();
+        company.setName("Vaudoise");
+        company.setCompanyIdentifier("CHE-123.456.789");
+        entityManager.persist(company);
+
+        for (int i = 0; i < 3; i++) {
+            Contract contract = new Contract();
+            contract.setClient(i == 0 ? company : person);
+            contract.setCostAmount(100.0 * (i + 1));
+            contract.setStartDate(LocalDate.of(2025, 1, 1));
+            entityManager.persist(contract);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> nodes = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            nodes.add(objectMapper.readTree(line));
+        }
+        return nodes;
+    }
+
+    @Test
+    @DisplayName("📤 export des contrats : une ligne JSON par contrat, avec le clientId")
+    void exportContracts_writesOneLinePerContract() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportContracts(out);
+
+        List<JsonNode> lines = lines(out);
+        assertThat(count).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1).get("clientId").asLong()).isEqualTo(person.getId());
+        assertThat(lines.get(1).get("costAmount").asDouble()).isEqualTo(200.0);
+        assertThat(lines.get(1).get("startDate").asText()).isEqualTo("2025-01-01");
+        assertThat(lines.get(1).get("endDate").isNull()).isTrue();
+        assertThat(out.toString(StandardCharsets.UTF_8)).endsWith("}\n");
+    }
+
+    @Test
+    @DisplayName("📤 export des clients : type et champs spécifiques de chaque client")
+    void exportClients_writesOneLinePerClient() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportClients(out);
+
+        List<JsonNode> lines = lines(out);
+        assertThat(count).isEqualTo(2);
+        assertThat(lines.get(0).get("clientType").asText()).isEqualTo("PERSON");
+        assertThat(lines.get(0).get("birthdate").asText()).isEqualTo("1998-05-17");
+        assertThat(lines.get(1).get("clientType").asText()).isEqualTo("COMPANY");
+        assertThat(lines.get(1).get("companyIdentifier").asText()).isEqualTo("CHE-123.456.789");
+    }
+}
@@ -0,0 +1,82 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.config.IdSequenceInitializer;
+import com.vaudoise.api.clientscontracts.model.Client;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// séquences des ids d'une base existante, créées par ddl-auto=update derrière des lignes déjà numérotées
+class IdSequenceInitializerTest extends ApplicationTestSupport {
+
+    @Autowired
+    private IdSequenceInitializer initializer;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("✅ séquence en retard sur les ids existants : relancée après le plus grand id")
+    void sequenceBehindExistingIds_isRestartedPastThem() {
+        Client client = clientWithContracts(1);
+        // les blocs d'ids déjà réservés par Hibernate restent à distribuer : valeurs remises à la fin du test
+        long clientNext = baseValue("client_seq");
+        long contractNext = baseValue("contract_seq");
+        try {
+            execute("alter sequence client_seq restart with 1");
+            execute("alter sequence contract_seq restart with 1");
+
+            initializer.afterSingletonsInstantiated();
+
+            // premier id du prochain bloc de 50 (optimiseur pooled)
+            assertThat(nextValue("client_seq") - 49).isGreaterThan(maxId("client"));
+            assertThat(nextValue("contract_seq") - 49).isGreaterThan(maxId("contract"));
+            assertThat(maxId("client")).isGreaterThanOrEqualTo(client.getId());
+        }
+        finally {
+            execute("alter sequence client_seq restart with " + clientNext);
+            execute("alter sequence contract_seq restart with " + contractNext);
+        }
+    }
+
+    @Test
+    @DisplayName("✅ séquence déjà en avance : laissée telle quelle")
+    void sequenceAhead_isLeftAlone() {
+        clientWithContracts(0);
+        long ahead = maxId("client") + 1000;
+        execute("alter sequence client_seq restart with " + ahead);
+
+        initializer.afterSingletonsInstantiated();
+
+        assertThat(nextValue("client_seq")).isEqualTo(ahead);
+    }
+
+    private void execute(String sql) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(sql).executeUpdate());
+    }
+
+    private long nextValue(String sequence) {
+        return transactionTemplate.execute(status -> ((Number) entityManager
+                .createNativeQuery("select next value for " + sequence).getSingleResult()).longValue());
+    }
+
+    private long baseValue(String sequence) {
+        return transactionTemplate.execute(status -> ((Number) entityManager
+                .createNativeQuery("select base_value from information_schema.sequences where sequence_name = ?1")
+                .setParameter(1, sequence.toUpperCase()).getSingleResult()).longValue());
+    }
+
+    private long maxId(String table) {
+        return transactionTemplate.execute(status -> ((Number) entityManager
+                .createNativeQuery("select max(id) from " + table).getSingleResult()).longValue());
+    }
+}
@@ -0,0 +1,210 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.jayway.jsonpath.JsonPath;
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.config.IdempotencyFilter;
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore;
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore.Claim;
+import com.vaudoise.api.clientscontracts.config.IdempotencyStore.StoredResponse;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// filtre Idempotency-Key devant les contrôleurs
+class IdempotencyTest extends ApplicationTestSupport {
+
+    private static final String CLIENT_JSON = "{\"clientType\": \"PERSON\", \"name\": \"Client rejoué\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("🔁 même Idempotency-Key renvoyée → un seul client créé, première réponse rejouée")
+    void retriedCreation_isReplayed() throws Exception {
+        long clientsBefore = clientRepository.count();
+
+        String first = mockMvc.perform(post("/api/clients").header("Idempotency-Key", "client-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(CLIENT_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = ((Number) JsonPath.read(first, "$.id")).longValue();
+
+        mockMvc.perform(post("/api/clients").header("Idempotency-Key", "client-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(CLIENT_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/api/clients/" + id))
+                .andExpect(header().string("Idempotency-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(id));
+
+        assertThat(clientRepository.count()).isEqualTo(clientsBefore + 1);
+    }
+
+    @Test
+    @DisplayName("❌ même Idempotency-Key pour une autre requête → 422, rien n'est créé")
+    void keyReusedForAnotherRequest_isRefused() throws Exception {
+        mockMvc.perform(post("/api/clients").header("Idempotency-Key", "client-2")
+                        .contentType(MediaType.APPLICATION_JSON).content(CLIENT_JSON))
+                .andExpect(status().isCreated());
+        long clientsBefore = clientRepository.count();
+
+        mockMvc.perform(post("/api/clients").header("Idempotency-Key", "client-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientType\": \"PERSON\", \"name\": \"Autre client\"}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.message").value("Idempotency-Key already used for another request"));
+
+        assertThat(clientRepository.count()).isEqualTo(clientsBefore);
+    }
+
+    @Test
+    @DisplayName("❌ même Idempotency-Key, même corps mais avec une query string → autre requête, 422")
+    void keyReusedWithQueryString_isRefused() throws Exception {
+        mockMvc.perform(post("/api/clients").header("Idempotency-Key", "client-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(CLIENT_JSON))
+                .andExpect(status().isCreated());
+
+        // « null » : ce que donnait l'absence de query string dans l'empreinte
+        mockMvc.perform(post("/api/clients?null").header("Idempotency-Key", "client-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(CLIENT_JSON))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @DisplayName("📥 corps relu en lecture non bloquante → tout le corps disponible d'emblée")
+    void replayableBody_supportsReadListener() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/clients");
+        request.addHeader("Idempotency-Key", "client-4");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(CLIENT_JSON.getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("data");
+                    in.transferTo(read);
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("end");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+            ((HttpServletResponse) res).setStatus(201);
+        });
+
+        assertThat(events).containsExactly("data", "end");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo(CLIENT_JSON);
+    }
+
+    @Test
+    @DisplayName("⚡ doublons simultanés d'une création de contrat → un seul contrat, même réponse pour tous")
+    void concurrentDuplicates_createOneContract() throws Exception {
+        long clientId = clientWithContracts(0).getId();
+        int duplicates = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+        try {
+            List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < duplicates; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/contracts/client/{id}", clientId)
+                                    .header("Idempotency-Key", "contract-" + clientId)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("{\"costAmount\": 1200.0}"))
+                            .andReturn().getResponse();
+                }));
+            }
+            start.countDown();
+
+            List<Object> contractIds = new ArrayList<>();
+            for (Future<MockHttpServletResponse> response : responses) {
+                MockHttpServletResponse result = response.get(30, TimeUnit.SECONDS);
+                assertThat(result.getStatus()).isEqualTo(201);
+                contractIds.add(JsonPath.read(result.getContentAsString(), "$.id"));
+            }
+            assertThat(contractIds).containsOnly(contractIds.get(0));
+            assertThat(contractRepository.findAll())
+                    .filteredOn(contract -> contract.getClient().getId().equals(clientId))
+                    .hasSize(1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("⏳ clé en cours → le doublon attend la réponse ; première requête abandonnée → clé libérée")
+    void store_duplicateWaitsForOwner() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, Duration.ofMinutes(1), 4);
+
+        Claim first = store.claim("key", "POST /api/clients");
+        Claim duplicate = store.claim("key", "POST /api/clients");
+        assertThat(first.owner()).isTrue();
+        assertThat(duplicate.owner()).isFalse();
+        assertThat(duplicate.entry()).isSameAs(first.entry());
+        assertThat(duplicate.entry().getResponse()).isNotDone();
+
+        store.abandon("key", first.entry());
+        assertThat(duplicate.entry().getResponse().get()).isNull();
+        Claim retry = store.claim("key", "POST /api/clients");
+        assertThat(retry.owner()).isTrue();
+
+        StoredResponse response = new StoredResponse(201, "application/json", null, null, "{}".getBytes());
+        store.complete(retry.entry(), response);
+        assertThat(store.lookup("key").getResponse().get()).isSameAs(response);
+    }
+}
@@ -0,0 +1,176 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Service.JournalCorruptedException;
+import com.vaudoise.api.clientscontracts.Service.JournalLog;
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * File format of the mutation journal: segments, durability boundary, crash
+ * recovery and hash chain.
+ */
+class JournalLogTest {
+
+    // 4 enregistrements par segment
+    private static final long SEGMENT_SIZE = 4 * JournalLog.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("✅ relecture identique à l'écriture, sur plusieurs segments, à partir de n'importe quel numéro")
+    void replay_returnsAppendedChangesAcrossSegments() throws IOException {
+        List<ChangeDto> changes = LongStream.rangeClosed(1, 10).mapToObj(JournalLogTest::change).toList();
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(changes.subList(0, 6));
+            journal.append(changes.subList(6, 10));
+            journal.sync();
+
+            List<ChangeDto> replayed = new ArrayList<>();
+            assertThat(journal.replay(0, replayed::add)).isEqualTo(10);
+            assertThat(replayed).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(changes);
+
+            List<Long> tail = new ArrayList<>();
+            assertThat(journal.replay(6, change -> tail.add(change.getSequence()))).isEqualTo(10);
+            assertThat(tail).containsExactly(7L, 8L, 9L, 10L);
+        }
+        assertThat(segments()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("⏳ seuls les enregistrements synchronisés sur disque sont relus")
+    void replay_stopsAtLastSync() throws IOException {
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(List.of(change(1), change(2)));
+            journal.sync();
+            journal.append(List.of(change(3)));
+
+            List<Long> replayed = new ArrayList<>();
+            journal.replay(0, change -> replayed.add(change.getSequence()));
+            assertThat(replayed).containsExactly(1L, 2L);
+        }
+    }
+
+    @Test
+    @DisplayName("💥 enregistrement incomplet après un arrêt brutal → tronqué à la réouverture, l'écriture reprend")
+    void reopen_truncatesTornRecord() throws IOException {
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(List.of(change(1), change(2)));
+        }
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - JournalLog.RECORD_SIZE / 2);
+        }
+
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            assertThat(journal.lastSequence()).isEqualTo(1);
+            journal.append(List.of(change(2), change(3)));
+            journal.sync();
+
+            List<Long> replayed = new ArrayList<>();
+            journal.replay(0, change -> replayed.add(change.getSequence()));
+            assertThat(replayed).containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    @DisplayName("💥 segment commencé sans enregistrement complet → conservé, la chaîne reprend au segment précédent")
+    void reopen_keepsSegmentStartedBeforeCrash() throws IOException {
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(LongStream.rangeClosed(1, 5).mapToObj(JournalLogTest::change).toList());
+        }
+        Path started = segments().get(1);
+        try (RandomAccessFile file = new RandomAccessFile(started.toFile(), "rw")) {
+            file.setLength(JournalLog.RECORD_SIZE / 2);
+        }
+
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            assertThat(journal.lastSequence()).isEqualTo(4);
+            assertThat(segments()).hasSize(2).contains(started);
+            journal.append(List.of(change(5), change(6)));
+            journal.sync();
+
+            List<Long> replayed = new ArrayList<>();
+            journal.replay(0, change -> replayed.add(change.getSequence()));
+            assertThat(replayed).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        }
+    }
+
+    @Test
+    @DisplayName("🔒 enregistrement invalide suivi d'enregistrements valides → altération, réouverture refusée, rien tronqué")
+    void reopen_refusesCorruptedMiddleRecord() throws IOException {
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(LongStream.rangeClosed(1, 3).mapToObj(JournalLogTest::change).toList());
+        }
+        // un bit inversé dans le coût du 2e enregistrement : son CRC ne correspond plus
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[JournalLog.RECORD_SIZE + 33] ^= 1;
+        Files.write(segment, bytes);
+
+        assertThatThrownBy(() -> new JournalLog(directory, SEGMENT_SIZE))
+                .isInstanceOf(JournalCorruptedException.class)
+                .hasMessageContaining("offset " + JournalLog.RECORD_SIZE);
+        assertThat(Files.readAllBytes(segment)).isEqualTo(bytes);
+    }
+
+    @Test
+    @DisplayName("🔒 enregistrement modifié (checksum recalculé) → chaîne d'empreintes rompue")
+    void replay_detectsTampering() throws IOException {
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            journal.append(LongStream.rangeClosed(1, 6).mapToObj(JournalLogTest::change).toList());
+            journal.sync();
+        }
+        // coût du 2e enregistrement réécrit, CRC mis à jour : seule la chaîne peut le détecter
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer record = ByteBuffer.wrap(bytes, JournalLog.RECORD_SIZE, JournalLog.RECORD_SIZE).slice();
+        record.putDouble(32, 1.0);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, JournalLog.RECORD_SIZE, 92);
+        record.putInt(92, (int) crc.getValue());
+        Files.write(segment, bytes);
+
+        try (JournalLog journal = new JournalLog(directory, SEGMENT_SIZE)) {
+            assertThat(journal.lastSequence()).isEqualTo(6);
+            assertThatThrownBy(() -> journal.replay(0, change -> { }))
+                    .isInstanceOf(JournalCorruptedException.class)
+                    .hasMessageContaining("hash chain broken");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static ChangeDto change(long sequence) {
+        ChangeType type = sequence % 3 == 1 ? ChangeType.CONTRACT_CREATED
+                : sequence % 3 == 2 ? ChangeType.CONTRACT_COST_UPDATED : ChangeType.CONTRACT_CLOSED;
+        return new ChangeDto(sequence, type, 100 + sequence / 3, sequence / 3, LocalDate.of(2024, 1, 1),
+                type == ChangeType.CONTRACT_CLOSED ? LocalDate.of(2025, 6, 30) : null,
+                type == ChangeType.CONTRACT_CLOSED ? null : 1000.5 + sequence,
+                LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_456_000));
+    }
+}
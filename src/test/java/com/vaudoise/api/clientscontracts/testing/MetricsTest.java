@@ -0,0 +1,72 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.jayway.jsonpath.JsonPath;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// les métriques sont celles que scrape Prometheus
+class MetricsTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("✅ /actuator/prometheus expose endpoints, services, lignes lues et pool Hikari")
+    void prometheusEndpoint_exposesApplicationMetrics() throws Exception {
+        String created = mockMvc.perform(post("/api/clients")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"clientType": "PERSON", "name": "Mohamed IKICH", "email": "ikich@vaudoise.ch",
+                                 "phone": "0600000000", "birthDate": "2000-12-05"}
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = ((Number) JsonPath.read(created, "$.id")).longValue();
+        for (double cost : new double[] { 100.0, 50.0 }) {
+            mockMvc.perform(post("/api/contracts/client/{id}", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"costAmount\": " + cost + "}"))
+                    .andExpect(status().is2xxSuccessful());
+        }
+
+        double rowsBefore = activeContractRows();
+        mockMvc.perform(get("/api/clients/{id}/contracts/active", id)).andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(metrics)
+                .containsPattern("http_server_requests_seconds_bucket\\{[^}]*uri=\"/api/clients/\\{id\\}/contracts/active\"")
+                .containsPattern("service_method_seconds_bucket\\{[^}]*method=\"getActiveContracts\"")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{[^}]*method=\"save\"")
+                .contains("repository_rows_total{method=\"findByClientIdAndEndDateAfterOrEndDateIsNull\","
+                        + "repository=\"ContractRepository\"}")
+                .contains("hikaricp_connections_active{")
+                .contains("hikaricp_connections_pending{")
+                .contains("cache_gets_total{cache=\"clients\"");
+        assertThat(activeContractRows() - rowsBefore).isEqualTo(2.0);
+    }
+
+    // lignes lues par la requête des contrats actifs, depuis le démarrage du contexte partagé
+    private double activeContractRows() {
+        Counter rows = meterRegistry.find("repository.rows").tag("repository", "ContractRepository")
+                .tag("method", "findByClientIdAndEndDateAfterOrEndDateIsNull").counter();
+        return rows == null ? 0 : rows.count();
+    }
+}
@@ -0,0 +1,100 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.ChangeFeedService;
+import com.vaudoise.api.clientscontracts.Service.MutationJournal;
+import com.vaudoise.api.clientscontracts.dto.ChangeDto;
+import com.vaudoise.api.clientscontracts.model.ChangeType;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// journal activé dans un répertoire temporaire (segments de 10 enregistrements)
+class MutationJournalTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MutationJournal journal;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Test
+    @DisplayName("✅ création, mises à jour du coût et clôture d'un contrat journalisées après leur commit")
+    void contractMutations_areJournaled() throws Exception {
+        long cursor = changeFeedService.lastSequence();
+        Client client = clientWithContracts(1);
+        long contractId = client.getContracts().get(0).getId();
+        contractService.updateCost(contractId, 150.0);
+        contractService.applyCostRate(client.getId(), BigDecimal.TEN);
+        clientService.deleteClient(client.getId());
+
+        List<ChangeDto> journaled = journaledAfter(cursor);
+
+        assertThat(journaled).extracting(ChangeDto::getType).containsExactly(ChangeType.CONTRACT_CREATED,
+                ChangeType.CONTRACT_COST_UPDATED, ChangeType.CONTRACT_COST_UPDATED, ChangeType.CONTRACT_CLOSED);
+        assertThat(journaled).extracting(ChangeDto::getContractId).containsOnly(contractId);
+        assertThat(journaled).extracting(ChangeDto::getCostAmount).containsExactly(100.0, 150.0, 165.0, 165.0);
+        assertThat(journaled.get(3).getEndDate()).isNotNull();
+        // mêmes numéros que le flux des modifications, sans les entrées du client
+        assertThat(journaled).extracting(ChangeDto::getSequence).containsExactly(cursor + 2, cursor + 3, cursor + 4, cursor + 5);
+    }
+
+    @Test
+    @DisplayName("🔁 relecture du journal → coûts et dates de fin identiques à la base, sur plusieurs segments")
+    void replay_rebuildsContractState() throws Exception {
+        Client client = clientWithContracts(12);
+        List<Contract> contracts = client.getContracts();
+        for (int i = 0; i < 6; i++) {
+            contractService.updateCost(contracts.get(i).getId(), 500.0 + i);
+        }
+        contractService.applyCostRate(client.getId(), BigDecimal.valueOf(-5));
+        Client closed = clientWithContracts(2);
+        clientService.deleteClient(closed.getId());
+
+        Map<Long, ChangeDto> state = new HashMap<>();
+        journaledAfter(0).forEach(change -> state.put(change.getContractId(), change));
+
+        for (Contract contract : contractRepository.findAllById(
+                Stream.concat(contracts.stream(), closed.getContracts().stream()).map(Contract::getId).toList())) {
+            assertThat(state.get(contract.getId()).getCostAmount()).isEqualTo(contract.getCostAmount());
+            assertThat(state.get(contract.getId()).getEndDate()).isEqualTo(contract.getEndDate());
+        }
+        try (Stream<Path> segments = Files.list(journalDirectory)) {
+            assertThat(segments.count()).isGreaterThan(1);
+        }
+        clientRepository.deleteAll();
+    }
+
+    // attend que toutes les modifications commitées soient sur disque, puis relit le journal
+    private List<ChangeDto> journaledAfter(long cursor) throws InterruptedException {
+        long last = changeFeedService.lastSequence();
+        for (int i = 0; i < 100 && journal.getDurableSequence() < last; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(journal.getDurableSequence()).isGreaterThanOrEqualTo(last);
+        List<ChangeDto> journaled = new ArrayList<>();
+        journal.replay(cursor, journaled::add);
+        return journaled;
+    }
+}
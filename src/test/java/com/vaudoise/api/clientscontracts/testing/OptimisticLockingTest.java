@@ -0,0 +1,269 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientContractTotalRepository;
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.Repository.ContractRepository;
+import com.vaudoise.api.clientscontracts.Service.ClientContractTotalService;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.ClientContractTotal;
+import com.vaudoise.api.clientscontracts.model.Contract;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// versions des contrats et des clients, If-Match et rejeu des écritures en conflit
+class OptimisticLockingTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientContractTotalService totalService;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ClientContractTotalRepository totalRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ If-Match sur la version courante → 200 et nouvel ETag ; ancienne version → 412, coût inchangé")
+    void updateCost_withIfMatch_checksVersion() throws Exception {
+        long contractId = clientWithContracts(1).getContracts().get(0).getId();
+
+        mockMvc.perform(put("/api/contracts/{id}/updateCost", contractId).param("updatedCost", "150.0")
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        // ETag fort accepté aussi : même version
+        mockMvc.perform(put("/api/contracts/{id}/updateCost", contractId).param("updatedCost", "160.0")
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""));
+
+        mockMvc.perform(put("/api/contracts/{id}/updateCost", contractId).param("updatedCost", "999.0")
+                        .header(HttpHeaders.IF_MATCH, "W/\"1\""))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(contractRepository.findById(contractId).orElseThrow().getCostAmount()).isEqualTo(160.0);
+    }
+
+    @Test
+    @DisplayName("✅ GET client → ETag ; PUT avec cet ETag appliqué, rejoué avec le même ETag → 412")
+    void updateClient_withIfMatch_checksVersion() throws Exception {
+        long clientId = clientWithContracts(1).getId();
+        String etag = mockMvc.perform(get("/api/clients/{id}", clientId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String body = "{\"clientType\":\"PERSON\",\"name\":\"Client renommé\",\"email\":\"renomme@vaudoise.ch\","
+                + "\"phone\":\"+41210000000\"}";
+
+        mockMvc.perform(put("/api/clients/{id}", clientId).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""));
+
+        mockMvc.perform(put("/api/clients/{id}", clientId).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+
+        // sans If-Match : mise à jour inconditionnelle
+        mockMvc.perform(put("/api/clients/{id}", clientId).contentType(MediaType.APPLICATION_JSON)
+                        .content(body.replace("Client renommé", "Client renommé deux fois")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""));
+    }
+
+    @Test
+    @DisplayName("🔁 mises à jour concurrentes du coût des mêmes contrats → toutes appliquées, total du client exact")
+    void concurrentCostUpdates_areRetried() throws Exception {
+        Client client = clientWithContracts(2);
+        List<Long> contractIds = client.getContracts().stream().map(Contract::getId).toList();
+        int threads = 8;
+        int updatesPerThread = 10;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < updatesPerThread; i++) {
+                        contractService.updateCost(contractIds.get(i % 2), 100.0 * thread + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // chaque mise à jour a incrémenté la version, aucune n'a été perdue
+        long versions = contractRepository.findAllById(contractIds).stream().mapToLong(Contract::getVersion).sum();
+        assertThat(versions).isEqualTo((long) threads * updatesPerThread);
+        // le total maintenu par deltas (coût remplacé relu à chaque essai) correspond aux contrats
+        double costs = contractRepository.findAllById(contractIds).stream().mapToDouble(Contract::getCostAmount).sum();
+        assertThat(totalService.getTotal(client.getId()).getActiveCost()).isEqualByComparingTo(BigDecimal.valueOf(costs));
+    }
+
+    @Test
+    @DisplayName("⚠️ révision tarifaire en masse → version incrémentée, une version antérieure est refusée")
+    void applyCostRate_bumpsVersion() {
+        Client client = clientWithContracts(1);
+        long contractId = client.getContracts().get(0).getId();
+
+        contractService.applyCostRate(client.getId(), BigDecimal.TEN);
+
+        assertThat(contractRepository.findById(contractId).orElseThrow().getVersion()).isEqualTo(1L);
+        assertThatThrownBy(() -> contractService.updateCost(contractId, 50.0, 0L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(contractService.updateCost(contractId, 50.0, 1L).getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("🏁 premières lectures simultanées du total → aucune erreur de clé en double, même total pour toutes")
+    void concurrentFirstReads_ofTotal_agree() throws Exception {
+        Client client = clientWithContracts(3);
+        int readers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<BigDecimal>> totals = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                totals.add(executor.submit(() -> {
+                    start.await();
+                    return clientService.getActiveContractsTotal(client.getId());
+                }));
+            }
+            start.countDown();
+            for (Future<BigDecimal> total : totals) {
+                assertThat(total.get(30, TimeUnit.SECONDS)).isEqualByComparingTo("303");
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("🏁 premier contrat d'un client créé pendant le premier calcul de son total → le contrat est compté")
+    void firstRecompute_racingFirstContract_countsIt() throws Exception {
+        long clientId = clientWithContracts(0).getId();
+        assertThat(totalRepository.findById(clientId)).isEmpty();
+
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // aucune ligne à mettre à jour : la création n'est commitée qu'après la lecture des contrats par le calcul
+            Future<?> writer = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Contract contract = new Contract();
+                contract.setCostAmount(50.0);
+                contractService.createContract(clientId, contract);
+                created.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            created.await(10, TimeUnit.SECONDS);
+            Future<ClientContractTotal> reader = executor.submit(() -> totalService.getTotal(clientId));
+            Thread.sleep(300);
+            commit.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+
+            assertThat(reader.get(10, TimeUnit.SECONDS).getActiveCost()).isEqualByComparingTo("50");
+            assertThat(totalService.getTotal(clientId).getActiveCost()).isEqualByComparingTo("50");
+        }
+        finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("🔁 recalcul du total pendant la création d'un contrat → rejoué, le nouveau contrat est compté")
+    void recompute_racingContractCreation_isReplayed() throws Exception {
+        Client client = clientWithContracts(1);
+        totalService.getTotal(client.getId());
+        // agrégat expiré : la prochaine lecture le recalcule
+        ClientContractTotal expired = totalRepository.findById(client.getId()).orElseThrow();
+        expired.setNextExpiry(LocalDate.now());
+        totalRepository.save(expired);
+
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // création commitée seulement après que le recalcul a lu les contrats
+            Future<?> writer = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Contract contract = new Contract();
+                contract.setCostAmount(50.0);
+                contractService.createContract(client.getId(), contract);
+                created.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            created.await(10, TimeUnit.SECONDS);
+            Future<ClientContractTotal> reader = executor.submit(() -> totalService.getTotal(client.getId()));
+            Thread.sleep(300);
+            commit.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+
+            assertThat(reader.get(10, TimeUnit.SECONDS).getActiveCost()).isEqualByComparingTo("150");
+            assertThat(totalRepository.findById(client.getId()).orElseThrow().getActiveCost())
+                    .isEqualByComparingTo("150");
+        }
+        finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.model.Client;
+import com.vaudoise.api.clientscontracts.model.Contract;
+import com.vaudoise.api.clientscontracts.model.Person;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// serveur HTTP réel : la compression est faite par Tomcat, hors de portée de MockMvc
+class ResponseFormatTest extends ApplicationTestSupport {
+
+    private static final String ACTIVE = "/api/clients/{id}/contracts/active";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        Person person = new Person();
+        person.setName("Grande Entreprise");
+        client = clientService.createClient(person);
+        for (int i = 0; i < 100; i++) {
+            Contract contract = new Contract();
+            contract.setCostAmount(1000.0 + i);
+            contractService.createContract(client.getId(), contract);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ sans préférence, les contrats restent en JSON")
+    void defaultFormat_isJson() throws IOException {
+        ResponseEntity<byte[]> response = get("*/*", null);
+
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(objectMapper.readTree(response.getBody())).hasSize(100);
+    }
+
+    @Test
+    @DisplayName("✅ Accept: application/cbor → même contenu qu'en JSON, en CBOR")
+    void cbor_carriesTheJsonContent() throws IOException {
+        JsonNode json = objectMapper.readTree(get(MediaType.APPLICATION_JSON_VALUE, null).getBody());
+        ResponseEntity<byte[]> response = get(MediaType.APPLICATION_CBOR_VALUE, null);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        JsonNode cbor = new CBORMapper().readTree(response.getBody());
+        assertThat(cbor).isEqualTo(json);
+        // dates au format ISO comme en JSON (configuration spring.jackson.* reprise)
+        assertThat(cbor.get(0).get("startDate").isTextual()).isTrue();
+        assertThat(response.getBody().length).isLessThan(objectMapper.writeValueAsBytes(json).length);
+    }
+
+    @Test
+    @DisplayName("✅ Accept: application/x-jackson-smile → même contenu qu'en JSON, en Smile")
+    void smile_carriesTheJsonContent() throws IOException {
+        JsonNode json = objectMapper.readTree(get(MediaType.APPLICATION_JSON_VALUE, null).getBody());
+        ResponseEntity<byte[]> response = get("application/x-jackson-smile", null);
+
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-jackson-smile");
+        assertThat(new SmileMapper().readTree(response.getBody())).isEqualTo(json);
+    }
+
+    @Test
+    @DisplayName("✅ Accept-Encoding: gzip → réponse compressée au-delà du seuil, ETag propre au format")
+    void largeResponse_isCompressed() throws IOException {
+        ResponseEntity<byte[]> plain = get(MediaType.APPLICATION_JSON_VALUE, null);
+        ResponseEntity<byte[]> gzipped = get(MediaType.APPLICATION_JSON_VALUE, "gzip");
+
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getVary()).map(String::toLowerCase).contains("accept", "accept-encoding");
+        assertThat(gzipped.getBody().length).isLessThan(plain.getBody().length / 4);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getBody());
+        }
+
+        assertThat(get(MediaType.APPLICATION_CBOR_VALUE, null).getHeaders().getETag())
+                .isNotEqualTo(plain.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("✅ petite réponse (sous le seuil) → pas de compression")
+    void smallResponse_isNotCompressed() {
+        ResponseEntity<byte[]> response = restTemplate.exchange("/api/clients/{id}/contracts/active/total",
+                HttpMethod.GET, new HttpEntity<>(headers(MediaType.APPLICATION_JSON_VALUE, "gzip")), byte[].class,
+                client.getId());
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    private ResponseEntity<byte[]> get(String accept, String acceptEncoding) {
+        ResponseEntity<byte[]> response = restTemplate.exchange(ACTIVE, HttpMethod.GET,
+                new HttpEntity<>(headers(accept, acceptEncoding)), byte[].class, client.getId());
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        return response;
+    }
+
+    private static HttpHeaders headers(String accept, String acceptEncoding) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, accept);
+        if (acceptEncoding != null) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return headers;
+    }
+}
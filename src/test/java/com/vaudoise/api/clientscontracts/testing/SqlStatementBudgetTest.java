@@ -0,0 +1,101 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.Repository.ClientRepository;
+import com.vaudoise.api.clientscontracts.model.Client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// les requêtes SQL sont réellement exécutées et comptées ;
+// sql.statement-budget.fail-on-exceed=true (build.gradle) fait échouer tout endpoint qui dépasse son budget
+class SqlStatementBudgetTest extends ApplicationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @AfterEach
+    void cleanUp() {
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("✅ GET /api/clients/{id} : même nombre de requêtes SQL quel que soit le nombre de contrats")
+    void getClient_statementsDoNotGrowWithContracts() throws Exception {
+        Client small = clientWithContracts(2);
+        Client large = clientWithContracts(20);
+
+        int smallCount = statements(get("/api/clients/{id}", small.getId()));
+        int largeCount = statements(get("/api/clients/{id}", large.getId()));
+
+        assertThat(smallCount).isPositive();
+        assertThat(largeCount).isEqualTo(smallCount);
+    }
+
+    @Test
+    @DisplayName("✅ les endpoints de lecture et de mise à jour restent dans leur budget")
+    void endpoints_stayWithinBudget() throws Exception {
+        Client client = clientWithContracts(20);
+        long contractId = client.getContracts().get(0).getId();
+
+        statements(get("/api/clients").param("size", "10"));
+        statements(get("/api/clients/{id}/contracts/active", client.getId()));
+        statements(get("/api/clients/{id}/contracts/active", client.getId()).param("size", "5"));
+        statements(get("/api/clients/{id}/contracts/filteredactive", client.getId())
+                .param("updatedDate", LocalDate.now().minusDays(1).toString()));
+        statements(get("/api/clients/{id}/contracts/active/total", client.getId()));
+        statements(post("/api/contracts/client/{id}", client.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"costAmount\": 80.0}"));
+        // premier contrat d'un client : pas encore de total à mettre à jour
+        statements(post("/api/contracts/client/{id}", clientWithContracts(0).getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"costAmount\": 80.0}"));
+        statements(put("/api/contracts/{id}/updateCost", contractId).param("updatedCost", "250.0"));
+    }
+
+    @Test
+    @DisplayName("🏷️ 304 sur les contrats actifs : seule la version des contrats est lue")
+    void conditionalGet_readsOnlyTheVersion() throws Exception {
+        Client client = clientWithContracts(20);
+
+        String etag = mockMvc.perform(get("/api/clients/{id}/contracts/active", client.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/clients/{id}/contracts/active", client.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("X-SQL-Statements", "1"));
+
+        contractService.updateCost(client.getContracts().get(0).getId(), 999.0);
+
+        mockMvc.perform(get("/api/clients/{id}/contracts/active", client.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    // le corps est écrit après le service : l'en-tête porte le total de la requête
+    private int statements(RequestBuilder request) throws Exception {
+        String count = mockMvc.perform(request)
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(header().exists("Server-Timing"))
+                .andReturn().getResponse().getHeader("X-SQL-Statements");
+        assertThat(count).isNotNull();
+        return Integer.parseInt(count);
+    }
+}
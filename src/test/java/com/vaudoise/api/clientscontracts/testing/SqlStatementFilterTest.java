@@ -0,0 +1,89 @@
+package com.vaudoise.api.clientscontracts.testing;
+
+import com.vaudoise.api.clientscontracts.config.SqlStatementBudget;
+import com.vaudoise.api.clientscontracts.config.SqlStatementCounter;
+import com.vaudoise.api.clientscontracts.config.SqlStatementFilter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlStatementFilterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/clients/1");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @SqlStatementBudget(1)
+    public void budgetedHandler() {
+    }
+
+    @Test
+    @DisplayName("✅ le nombre de requêtes SQL est renvoyé dans les en-têtes")
+    void withinBudget_addsHeaders() throws Exception {
+        filter(true).doFilter(request, response, handlerRunning(1));
+
+        assertThat(response.getHeader("X-SQL-Statements")).isEqualTo("1");
+        assertThat(response.getHeader("Server-Timing")).startsWith("sql;dur=");
+        assertThat(response.getContentAsString()).isEqualTo("{}");
+        assertThat(meterRegistry.get("http.server.sql.statements").tag("method", "GET").summary().totalAmount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("❌ budget dépassé en mode test : la requête échoue")
+    void overBudget_failsWhenEnforced() {
+        assertThatThrownBy(() -> filter(true).doFilter(request, response, handlerRunning(3)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ran 3 SQL statements, its budget is 1");
+    }
+
+    @Test
+    @DisplayName("✅ budget dépassé hors mode test : simple avertissement")
+    void overBudget_onlyWarnsByDefault() throws Exception {
+        filter(false).doFilter(request, response, handlerRunning(3));
+
+        assertThat(response.getHeader("X-SQL-Statements")).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("✅ les requêtes hors d'une requête HTTP ne sont pas comptées")
+    void statementsOutsideRequests_areNotCounted() throws Exception {
+        counter.inspect("select 1");
+        filter(true).doFilter(request, response, handlerRunning(0));
+
+        assertThat(response.getHeader("X-SQL-Statements")).isEqualTo("0");
+    }
+
+    private SqlStatementFilter filter(boolean failOnExceed) {
+        return new SqlStatementFilter(meterRegistry, failOnExceed);
+    }
+
+    // simule le DispatcherServlet : choix du handler, requêtes SQL, puis écriture du corps
+    private FilterChain handlerRunning(int statements) {
+        return (req, res) -> {
+            try {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                        new HandlerMethod(this, getClass().getMethod("budgetedHandler")));
+            }
+            catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < statements; i++) {
+                counter.inspect("select 1");
+            }
+            res.getWriter().write("{}");
+        };
+    }
+}